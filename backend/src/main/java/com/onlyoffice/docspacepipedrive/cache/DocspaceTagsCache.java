@@ -0,0 +1,151 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.onlyoffice.docspacepipedrive.client.docspace.DocspaceClient;
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DocspaceTagsCache {
+    private final DocspaceClient docspaceClient;
+
+    // Tags being created right now, concurrent callers wait for the same creation instead of racing
+    private final Map<TagKey, CompletableFuture<Void>> tagCreations = new ConcurrentHashMap<>();
+
+    @Value("${app.docspace-tags-cache.maximum-size}")
+    private long maximumSize;
+    @Value("${app.docspace-tags-cache.expire-after-write}")
+    private Duration expireAfterWrite;
+
+    private Cache<PortalKey, Set<String>> knownTags;
+
+    @PostConstruct
+    public void init() {
+        knownTags = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    public void ensureTag(final String tagName) {
+        PortalKey portalKey = getPortalKey();
+
+        Set<String> tags = getKnownTags(portalKey);
+        if (tags.contains(tagName)) {
+            return;
+        }
+
+        TagKey tagKey = new TagKey(portalKey, tagName);
+        CompletableFuture<Void> tagCreation = new CompletableFuture<>();
+
+        CompletableFuture<Void> existingTagCreation = tagCreations.putIfAbsent(tagKey, tagCreation);
+        if (existingTagCreation != null) {
+            try {
+                existingTagCreation.join();
+                return;
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+
+                throw e;
+            }
+        }
+
+        try {
+            // A creation that finished between the first check and putIfAbsent has already added the tag
+            Set<String> currentTags = getKnownTags(portalKey);
+            if (!currentTags.contains(tagName)) {
+                createTag(portalKey, currentTags, tagName);
+            }
+
+            tagCreation.complete(null);
+        } catch (RuntimeException e) {
+            tagCreation.completeExceptionally(e);
+            throw e;
+        } finally {
+            tagCreations.remove(tagKey, tagCreation);
+        }
+    }
+
+    public void invalidate() {
+        knownTags.invalidate(getPortalKey());
+    }
+
+    private void createTag(final PortalKey portalKey, final Set<String> tags, final String tagName) {
+        try {
+            docspaceClient.createTag(tagName);
+        } catch (WebClientResponseException e) {
+            // The tag could be created by another node, check the actual list before giving up
+            knownTags.invalidate(portalKey);
+
+            if (!getKnownTags(portalKey).contains(tagName)) {
+                throw e;
+            }
+
+            return;
+        }
+
+        tags.add(tagName);
+    }
+
+    private Set<String> getKnownTags(final PortalKey portalKey) {
+        Set<String> tags = knownTags.getIfPresent(portalKey);
+        if (tags == null) {
+            // Loaded outside of the cache lock as the current user
+            tags = ConcurrentHashMap.newKeySet();
+            tags.addAll(docspaceClient.getTags());
+
+            knownTags.put(portalKey, tags);
+        }
+
+        return tags;
+    }
+
+    private PortalKey getPortalKey() {
+        Client currentClient = SecurityUtils.getCurrentClient();
+
+        return new PortalKey(currentClient.getId(), currentClient.getSettings().getUrl());
+    }
+
+    private record PortalKey(Long clientId, String url) {
+    }
+
+    private record TagKey(PortalKey portalKey, String tagName) {
+    }
+}
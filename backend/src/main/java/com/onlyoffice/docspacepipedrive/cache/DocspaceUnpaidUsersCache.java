@@ -0,0 +1,124 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.onlyoffice.docspacepipedrive.client.docspace.ReactiveDocspaceClient;
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.events.user.DocspaceLoginUserEvent;
+import com.onlyoffice.docspacepipedrive.events.user.DocspaceLogoutUserEvent;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import com.onlyoffice.docspacepipedrive.service.ClientService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DocspaceUnpaidUsersCache {
+    private static final int EMPLOYEE_TYPE_USER = 2;
+
+    private final ReactiveDocspaceClient reactiveDocspaceClient;
+    private final ClientService clientService;
+
+    @Value("${app.docspace-unpaid-users-cache.maximum-size}")
+    private long maximumSize;
+    @Value("${app.docspace-unpaid-users-cache.refresh-after-write}")
+    private Duration refreshAfterWrite;
+    @Value("${app.docspace-unpaid-users-cache.expire-after-write}")
+    private Duration expireAfterWrite;
+
+    private LoadingCache<PortalKey, Set<UUID>> unpaidUsers;
+
+    @PostConstruct
+    public void init() {
+        // The loader is used only for refresh-ahead, it runs in background as the client system user
+        unpaidUsers = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(refreshAfterWrite)
+                .expireAfterWrite(expireAfterWrite)
+                .build(portalKey -> {
+                    Client client = clientService.findById(portalKey.clientId());
+
+                    return SecurityUtils.runAs(new SecurityUtils.RunAsWork<Set<UUID>>() {
+                        public Set<UUID> doWork() {
+                            return findUnpaidUsers();
+                        }
+                    }, client.getSystemUser());
+                });
+    }
+
+    public Set<UUID> getUnpaidUsers() {
+        Client currentClient = SecurityUtils.getCurrentClient();
+        if (currentClient.getSettings() == null) {
+            return findUnpaidUsers();
+        }
+
+        PortalKey portalKey = new PortalKey(currentClient.getId(), currentClient.getSettings().getUrl());
+
+        Set<UUID> result = unpaidUsers.getIfPresent(portalKey);
+        if (result == null) {
+            // Loaded outside of the cache lock as the current user
+            result = findUnpaidUsers();
+            unpaidUsers.put(portalKey, result);
+        }
+
+        return result;
+    }
+
+    @EventListener
+    public void listen(final DocspaceLoginUserEvent event) {
+        invalidate(SecurityUtils.getCurrentClient().getId());
+    }
+
+    @EventListener
+    public void listen(final DocspaceLogoutUserEvent event) {
+        invalidate(SecurityUtils.getCurrentClient().getId());
+    }
+
+    private void invalidate(final Long clientId) {
+        unpaidUsers.asMap().keySet().removeIf(portalKey -> portalKey.clientId().equals(clientId));
+    }
+
+    private Set<UUID> findUnpaidUsers() {
+        // Only ids are decoded, the directory is never held as full DocspaceUser objects
+        return reactiveDocspaceClient.findUsers(EMPLOYEE_TYPE_USER, UnpaidUser.class)
+                .map(UnpaidUser::id)
+                .collect(Collectors.toUnmodifiableSet())
+                .block();
+    }
+
+    // Keyed by portal URL as well, so changing the DocSpace portal in settings never serves the old directory
+    private record PortalKey(Long clientId, String url) {
+    }
+
+    private record UnpaidUser(UUID id) {
+    }
+}
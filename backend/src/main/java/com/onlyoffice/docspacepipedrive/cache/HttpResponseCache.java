@@ -0,0 +1,108 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+// Bodies and validators of upstream GET responses per user, revalidated with conditional requests
+@Component
+public class HttpResponseCache {
+    // Cached keys per user, so invalidating one user does not scan the whole cache
+    private final Map<Long, Set<ResponseKey>> userResponseKeys = new ConcurrentHashMap<>();
+
+    @Value("${app.http-response-cache.maximum-size}")
+    private long maximumSize;
+    @Value("${app.http-response-cache.expire-after-write}")
+    private Duration expireAfterWrite;
+
+    private Cache<ResponseKey, CachedResponse> responses;
+
+    @PostConstruct
+    public void init() {
+        responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .<ResponseKey, CachedResponse>removalListener((responseKey, cachedResponse, cause) -> {
+                    if (responseKey != null && !cause.equals(RemovalCause.REPLACED)) {
+                        removeUserResponseKey(responseKey);
+                    }
+                })
+                .build();
+    }
+
+    public CachedResponse get(final Long userId, final URI uri) {
+        return responses.getIfPresent(new ResponseKey(userId, uri));
+    }
+
+    public void put(final Long userId, final URI uri, final CachedResponse cachedResponse) {
+        ResponseKey responseKey = new ResponseKey(userId, uri);
+
+        userResponseKeys.computeIfAbsent(userId, key -> ConcurrentHashMap.newKeySet()).add(responseKey);
+        responses.put(responseKey, cachedResponse);
+    }
+
+    public void invalidate(final Long userId) {
+        Set<ResponseKey> responseKeys = userResponseKeys.remove(userId);
+
+        if (responseKeys != null) {
+            responses.invalidateAll(responseKeys);
+        }
+    }
+
+    private void removeUserResponseKey(final ResponseKey responseKey) {
+        userResponseKeys.computeIfPresent(responseKey.userId(), (userId, responseKeys) -> {
+            // The key may have been cached again since it was removed
+            if (!responses.asMap().containsKey(responseKey)) {
+                responseKeys.remove(responseKey);
+            }
+
+            return responseKeys.isEmpty() ? null : responseKeys;
+        });
+    }
+
+    public record CachedResponse(HttpStatusCode statusCode, HttpHeaders headers, byte[] body,
+                                 ExchangeStrategies strategies, Instant freshUntil) {
+        public boolean isFresh() {
+            return Instant.now().isBefore(freshUntil);
+        }
+
+        public CachedResponse revalidate(final Instant revalidatedFreshUntil) {
+            return new CachedResponse(statusCode, headers, body, strategies, revalidatedFreshUntil);
+        }
+    }
+
+    private record ResponseKey(Long userId, URI uri) {
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.PipedriveClient;
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import com.onlyoffice.docspacepipedrive.service.ClientService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PipedriveAdvancedPermissionsCache {
+    private final PipedriveClient pipedriveClient;
+    private final ClientService clientService;
+
+    @Value("${app.pipedrive-advanced-permissions-cache.maximum-size}")
+    private long maximumSize;
+    @Value("${app.pipedrive-advanced-permissions-cache.refresh-after-write}")
+    private Duration refreshAfterWrite;
+    @Value("${app.pipedrive-advanced-permissions-cache.expire-after-write}")
+    private Duration expireAfterWrite;
+
+    private LoadingCache<Long, Boolean> advancedPermissions;
+
+    @PostConstruct
+    public void init() {
+        // The loader is used only for refresh-ahead, it runs in background as the client system user
+        advancedPermissions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .refreshAfterWrite(refreshAfterWrite)
+                .expireAfterWrite(expireAfterWrite)
+                .build(clientId -> {
+                    Client client = clientService.findById(clientId);
+
+                    return SecurityUtils.runAs(new SecurityUtils.RunAsWork<Boolean>() {
+                        public Boolean doWork() {
+                            return pipedriveClient.getUserSettings().getAdvancedPermissions();
+                        }
+                    }, client.getSystemUser());
+                });
+    }
+
+    public boolean isEnabled() {
+        Client currentClient = SecurityUtils.getCurrentClient();
+
+        Boolean enabled = advancedPermissions.getIfPresent(currentClient.getId());
+        if (enabled == null) {
+            // Loaded outside of the cache lock as the current user, who may differ from the system user
+            enabled = pipedriveClient.getUserSettings().getAdvancedPermissions();
+            advancedPermissions.put(currentClient.getId(), enabled);
+        }
+
+        return enabled;
+    }
+}
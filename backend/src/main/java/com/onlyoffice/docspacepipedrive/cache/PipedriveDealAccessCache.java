@@ -0,0 +1,165 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.PipedriveClient;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+// Remembers for a short time that users were allowed to read a deal, so opening the room panel
+// does not fetch the deal from Pipedrive every time only to prove access.
+// Every entry keeps the deal version it was checked against. The version is a local generation bumped on
+// invalidation and, with Redis, a per-deal version shared by all nodes. Without Redis an invalidation reaches
+// only the node that received the webhook, other nodes may keep granting access revoked by a deal change
+// for up to expire-after-write
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PipedriveDealAccessCache {
+    private static final String REDIS_KEY_PREFIX = "docspace-pipedrive:deal-access-version:";
+    private static final String INITIAL_VERSION = "0";
+
+    private final PipedriveClient pipedriveClient;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.pipedrive-deal-access-cache.maximum-size}")
+    private long maximumSize;
+    @Value("${app.pipedrive-deal-access-cache.expire-after-write}")
+    private Duration expireAfterWrite;
+    @Value("${app.pipedrive-deal-access-cache.redis-enabled}")
+    private boolean redisEnabled;
+    @Value("${app.pipedrive-deal-access-cache.version-ttl}")
+    private Duration versionTtl;
+
+    private Cache<DealKey, DealAccess> dealAccesses;
+    // Only invalidated deals have a generation, entries outlive any access check in progress
+    private Cache<DealKey, Long> generations;
+
+    @PostConstruct
+    public void init() {
+        dealAccesses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+
+        generations = Caffeine.newBuilder()
+                .expireAfterWrite(versionTtl)
+                .build();
+    }
+
+    // Throws PipedriveWebClientResponseException if the current user can not read the deal
+    public void checkAccess(final Long dealId) {
+        User currentUser = SecurityUtils.getCurrentUser();
+        DealKey dealKey = new DealKey(currentUser.getClient().getId(), dealId);
+
+        String version = getVersion(dealKey);
+
+        DealAccess dealAccess = dealAccesses.getIfPresent(dealKey);
+        if (version != null && dealAccess != null && dealAccess.version().equals(version)
+                && dealAccess.userIds().contains(currentUser.getId())) {
+            return;
+        }
+
+        // Denied access is not cached, the error goes to the caller as before
+        pipedriveClient.getDeal(dealId);
+
+        // The deal may have changed while it was fetched, the fetched access can be already revoked
+        if (version == null || !version.equals(getVersion(dealKey))) {
+            return;
+        }
+
+        dealAccesses.asMap().compute(dealKey, (key, existingDealAccess) -> {
+            DealAccess access = existingDealAccess;
+            if (access == null || !access.version().equals(version)) {
+                access = new DealAccess(version, ConcurrentHashMap.newKeySet());
+            }
+
+            access.userIds().add(currentUser.getId());
+            return access;
+        });
+    }
+
+    public void invalidate(final Long clientId, final Long dealId) {
+        DealKey dealKey = new DealKey(clientId, dealId);
+
+        generations.asMap().merge(dealKey, 1L, Long::sum);
+        dealAccesses.invalidate(dealKey);
+
+        if (redisEnabled) {
+            try {
+                stringRedisTemplate.opsForValue().increment(getRedisKey(dealKey));
+                stringRedisTemplate.expire(getRedisKey(dealKey), versionTtl);
+            } catch (Exception e) {
+                log.warn(MessageFormat.format(
+                        "Failed to invalidate access to Pipedrive deal ({0}) in Redis: {1}",
+                        dealId.toString(),
+                        e.getMessage()
+                ));
+            }
+        }
+    }
+
+    // Null if the version can not be read, then access is checked in Pipedrive and not cached
+    private String getVersion(final DealKey dealKey) {
+        Long generation = generations.getIfPresent(dealKey);
+        String localVersion = generation == null ? INITIAL_VERSION : generation.toString();
+
+        if (!redisEnabled) {
+            return localVersion;
+        }
+
+        try {
+            String version = stringRedisTemplate.opsForValue().get(getRedisKey(dealKey));
+
+            return (version == null ? INITIAL_VERSION : version) + ":" + localVersion;
+        } catch (Exception e) {
+            log.warn(MessageFormat.format(
+                    "Failed to read access version of Pipedrive deal ({0}) in Redis: {1}",
+                    dealKey.dealId().toString(),
+                    e.getMessage()
+            ));
+
+            return null;
+        }
+    }
+
+    private String getRedisKey(final DealKey dealKey) {
+        return REDIS_KEY_PREFIX + dealKey.clientId() + ":" + dealKey.dealId();
+    }
+
+    private record DealKey(Long clientId, Long dealId) {
+    }
+
+    private record DealAccess(String version, Set<Long> userIds) {
+    }
+}
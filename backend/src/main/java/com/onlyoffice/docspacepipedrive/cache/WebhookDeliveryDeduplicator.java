@@ -0,0 +1,124 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.Map;
+
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookDeliveryDeduplicator {
+    private static final String REDIS_KEY_PREFIX = "docspace-pipedrive:webhook-delivery:";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${app.webhook-deduplication.maximum-size}")
+    private long maximumSize;
+    @Value("${app.webhook-deduplication.ttl}")
+    private Duration ttl;
+    @Value("${app.webhook-deduplication.redis-enabled}")
+    private boolean redisEnabled;
+
+    private Cache<String, Boolean> seenDeliveries;
+
+    @PostConstruct
+    public void init() {
+        seenDeliveries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // Pipedrive repeats the same meta on redelivery, "id" in meta is the id of the changed object
+    public String getDeliveryKey(final Map<String, Object> meta) {
+        if (meta == null) {
+            return null;
+        }
+
+        Object webhookId = meta.get("webhook_id");
+        Object objectId = meta.get("id");
+        Object timestamp = meta.getOrDefault("timestamp_micro", meta.get("timestamp"));
+
+        if (webhookId == null || objectId == null || timestamp == null) {
+            return null;
+        }
+
+        return webhookId + ":" + objectId + ":" + timestamp;
+    }
+
+    public boolean tryAcquire(final String deliveryKey) {
+        if (deliveryKey == null) {
+            return true;
+        }
+
+        if (seenDeliveries.asMap().putIfAbsent(deliveryKey, Boolean.TRUE) != null) {
+            return false;
+        }
+
+        if (redisEnabled) {
+            try {
+                Boolean acquired = stringRedisTemplate.opsForValue()
+                        .setIfAbsent(REDIS_KEY_PREFIX + deliveryKey, "1", ttl);
+
+                return !Boolean.FALSE.equals(acquired);
+            } catch (Exception e) {
+                // Fall back to the local cache only, the inbox tolerates a rare duplicate
+                log.warn(MessageFormat.format(
+                        "Failed to check Webhook delivery ({0}) in Redis: {1}",
+                        deliveryKey,
+                        e.getMessage()
+                ));
+            }
+        }
+
+        return true;
+    }
+
+    public void release(final String deliveryKey) {
+        if (deliveryKey == null) {
+            return;
+        }
+
+        seenDeliveries.invalidate(deliveryKey);
+
+        if (redisEnabled) {
+            try {
+                stringRedisTemplate.delete(REDIS_KEY_PREFIX + deliveryKey);
+            } catch (Exception e) {
+                log.warn(MessageFormat.format(
+                        "Failed to release Webhook delivery ({0}) in Redis: {1}",
+                        deliveryKey,
+                        e.getMessage()
+                ));
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client;
+
+import com.onlyoffice.docspacepipedrive.client.filter.HttpRetryBudget;
+import com.onlyoffice.docspacepipedrive.client.filter.HttpRetryExchangeFilterFunction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+
+@Component
+@RequiredArgsConstructor
+public class HttpClientFactory {
+    private static final String PROPERTIES_PREFIX = "app.http-clients.";
+    private static final String DEFAULT_NAME = "default";
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    // One connection pool per upstream, shared by all WebClients calling it
+    private final Map<String, ConnectionProvider> connectionProviders = new ConcurrentHashMap<>();
+    // One retry budget per upstream, shared the same way
+    private final Map<String, HttpRetryBudget> retryBudgets = new ConcurrentHashMap<>();
+
+    public WebClient.Builder createWebClientBuilder(final String name) {
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(createHttpClient(name)));
+    }
+
+    public HttpClient createHttpClient(final String name) {
+        ConnectionProvider connectionProvider = connectionProviders.computeIfAbsent(
+                name,
+                this::createConnectionProvider
+        );
+
+        Duration connectTimeout = getProperty(name, "connect-timeout", Duration.class);
+        Duration readTimeout = getProperty(name, "read-timeout", Duration.class);
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(getProperty(name, "response-timeout", Duration.class))
+                .keepAlive(true)
+                // Added per request, so connections idling in the pool are not timed out
+                .doOnRequest((request, connection) -> {
+                    connection.addHandlerLast(new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS));
+                });
+
+        if (getProperty(name, "http2-enabled", Boolean.class)) {
+            // h2 is negotiated via ALPN on https hosts, servers without it and plain http stay on HTTP/1.1.
+            // Requests to one host are multiplexed as streams over its pooled h2 connections
+            httpClient = httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+        }
+
+        return httpClient;
+    }
+
+    public HttpRetryExchangeFilterFunction createRetryExchangeFilterFunction(final String name) {
+        HttpRetryBudget httpRetryBudget = retryBudgets.computeIfAbsent(name, key -> new HttpRetryBudget(
+                getProperty(key, "retry.budget-ratio", Double.class),
+                getProperty(key, "retry.budget-min-retries-per-second", Double.class),
+                getProperty(key, "retry.budget-capacity", Double.class)
+        ));
+
+        Map<String, Integer> endpointMaxAttempts = Binder.get(environment)
+                .bind(PROPERTIES_PREFIX + name + ".retry.endpoints", Bindable.mapOf(String.class, Integer.class))
+                .orElse(Map.of());
+
+        return new HttpRetryExchangeFilterFunction(
+                name,
+                getProperty(name, "retry.max-attempts", Integer.class),
+                getProperty(name, "retry.base-delay", Duration.class),
+                getProperty(name, "retry.max-delay", Duration.class),
+                endpointMaxAttempts,
+                httpRetryBudget,
+                meterRegistry
+        );
+    }
+
+    @PreDestroy
+    public void destroy() {
+        connectionProviders.values().forEach(ConnectionProvider::dispose);
+    }
+
+    private ConnectionProvider createConnectionProvider(final String name) {
+        // Pool metrics are published as reactor.netty.connection.provider.* tagged with the pool name
+        return ConnectionProvider.builder(name)
+                .maxConnections(getProperty(name, "max-connections", Integer.class))
+                .pendingAcquireMaxCount(getProperty(name, "pending-acquire-max-count", Integer.class))
+                .pendingAcquireTimeout(getProperty(name, "pending-acquire-timeout", Duration.class))
+                .maxIdleTime(getProperty(name, "max-idle-time", Duration.class))
+                .maxLifeTime(getProperty(name, "max-life-time", Duration.class))
+                .evictInBackground(getProperty(name, "evict-in-background", Duration.class))
+                .metrics(true)
+                .build();
+    }
+
+    private <T> T getProperty(final String name, final String key, final Class<T> type) {
+        T value = environment.getProperty(PROPERTIES_PREFIX + name + "." + key, type);
+
+        if (value != null) {
+            return value;
+        }
+
+        return environment.getRequiredProperty(PROPERTIES_PREFIX + DEFAULT_NAME + "." + key, type);
+    }
+}
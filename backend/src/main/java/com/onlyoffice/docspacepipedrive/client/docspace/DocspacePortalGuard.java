@@ -0,0 +1,134 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.docspace;
+
+import com.onlyoffice.docspacepipedrive.exceptions.DocspaceUnavailableException;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.text.MessageFormat;
+import java.time.Duration;
+
+
+// Isolates DocSpace portals from each other, a slow or failing portal fails fast and keeps to its own share of calls
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DocspacePortalGuard {
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.docspace-portal-guard.circuit-breaker.failure-rate-threshold}")
+    private float failureRateThreshold;
+    @Value("${app.docspace-portal-guard.circuit-breaker.slow-call-rate-threshold}")
+    private float slowCallRateThreshold;
+    @Value("${app.docspace-portal-guard.circuit-breaker.slow-call-duration-threshold}")
+    private Duration slowCallDurationThreshold;
+    @Value("${app.docspace-portal-guard.circuit-breaker.sliding-window-size}")
+    private int slidingWindowSize;
+    @Value("${app.docspace-portal-guard.circuit-breaker.minimum-number-of-calls}")
+    private int minimumNumberOfCalls;
+    @Value("${app.docspace-portal-guard.circuit-breaker.wait-duration-in-open-state}")
+    private Duration waitDurationInOpenState;
+    @Value("${app.docspace-portal-guard.circuit-breaker.permitted-number-of-calls-in-half-open-state}")
+    private int permittedNumberOfCallsInHalfOpenState;
+    @Value("${app.docspace-portal-guard.bulkhead.max-concurrent-calls}")
+    private int maxConcurrentCalls;
+    @Value("${app.docspace-portal-guard.bulkhead.max-wait-duration}")
+    private Duration maxWaitDuration;
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private BulkheadRegistry bulkheadRegistry;
+
+    @PostConstruct
+    public void init() {
+        CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slowCallDurationThreshold(slowCallDurationThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(waitDurationInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(permittedNumberOfCallsInHalfOpenState)
+                // DocSpace answers with 5xx while it is unhealthy, 4xx are errors of the call itself
+                .recordResult(result -> result instanceof ClientResponse clientResponse
+                        && clientResponse.statusCode().is5xxServerError())
+                .build();
+
+        BulkheadConfig bulkheadConfig = BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWaitDuration)
+                .build();
+
+        circuitBreakerRegistry = CircuitBreakerRegistry.of(circuitBreakerConfig);
+        bulkheadRegistry = BulkheadRegistry.of(bulkheadConfig);
+
+        circuitBreakerRegistry.getEventPublisher().onEntryAdded(entryAddedEvent -> {
+            CircuitBreaker circuitBreaker = entryAddedEvent.getAddedEntry();
+
+            circuitBreaker.getEventPublisher().onStateTransition(stateTransitionEvent -> {
+                log.warn(MessageFormat.format(
+                        "DocSpace ({0}) circuit breaker moved from {1} to {2}",
+                        circuitBreaker.getName(),
+                        stateTransitionEvent.getStateTransition().getFromState(),
+                        stateTransitionEvent.getStateTransition().getToState()
+                ));
+
+                meterRegistry.counter(
+                        "docspace.circuitbreaker.transitions",
+                        "portal", circuitBreaker.getName(),
+                        "to", stateTransitionEvent.getStateTransition().getToState().name()
+                ).increment();
+            });
+        });
+
+        // Publishes resilience4j.circuitbreaker.* and resilience4j.bulkhead.* tagged with the portal
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+    }
+
+    public Mono<ClientResponse> protect(final URI uri, final Mono<ClientResponse> exchange) {
+        String portal = uri.getAuthority();
+
+        return exchange
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(portal)))
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(portal)))
+                .onErrorMap(
+                        e -> e instanceof CallNotPermittedException || e instanceof BulkheadFullException,
+                        e -> new DocspaceUnavailableException(portal, e)
+                );
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.docspace;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+// Decodes the "response" array of a DocSpace response element by element as the body arrives,
+// so a page is never held as a whole tree. One instance per response body.
+class DocspaceResponseArrayDecoder<T> {
+    private static final String RESPONSE_FIELD = "response";
+    private static final String TOTAL_FIELD = "total";
+
+    private final ObjectMapper objectMapper;
+    private final Class<T> elementType;
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private int depth;
+    private boolean inResponseArray;
+    private TokenBuffer element;
+    private int elementDepth;
+    private int total;
+
+    DocspaceResponseArrayDecoder(final ObjectMapper objectMapper, final Class<T> elementType) {
+        this.objectMapper = objectMapper;
+        this.elementType = elementType;
+
+        try {
+            this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new DecodingException("Failed to create DocSpace response parser", e);
+        }
+
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    public List<T> decode(final DataBuffer dataBuffer) {
+        try {
+            byte[] bytes = new byte[dataBuffer.readableByteCount()];
+            dataBuffer.read(bytes);
+
+            feeder.feedInput(bytes, 0, bytes.length);
+
+            return parseAvailableTokens();
+        } catch (IOException e) {
+            throw new DecodingException("Failed to decode DocSpace response", e);
+        } finally {
+            DataBufferUtils.release(dataBuffer);
+        }
+    }
+
+    public List<T> endOfInput() {
+        feeder.endOfInput();
+
+        try {
+            return parseAvailableTokens();
+        } catch (IOException e) {
+            throw new DecodingException("Failed to decode DocSpace response", e);
+        }
+    }
+
+    // Read after the body is complete, DocSpace sends it after the "response" array
+    public int getTotal() {
+        return total;
+    }
+
+    private List<T> parseAvailableTokens() throws IOException {
+        List<T> elements = new ArrayList<>();
+
+        JsonToken token = parser.nextToken();
+        while (token != null && token != JsonToken.NOT_AVAILABLE) {
+            if (element == null && inResponseArray && depth == 2 && token != JsonToken.END_ARRAY) {
+                element = new TokenBuffer(objectMapper, false);
+                elementDepth = 0;
+            }
+
+            if (element != null) {
+                element.copyCurrentEvent(parser);
+                elementDepth += getDepthChange(token);
+
+                if (elementDepth == 0) {
+                    elements.add(objectMapper.readValue(element.asParser(objectMapper), elementType));
+                    element = null;
+                }
+            } else {
+                if (token == JsonToken.START_ARRAY && depth == 1 && RESPONSE_FIELD.equals(parser.currentName())) {
+                    inResponseArray = true;
+                } else if (token == JsonToken.END_ARRAY && depth == 2 && inResponseArray) {
+                    inResponseArray = false;
+                } else if (token == JsonToken.VALUE_NUMBER_INT && depth == 1
+                        && TOTAL_FIELD.equals(parser.currentName())) {
+                    total = parser.getIntValue();
+                }
+
+                depth += getDepthChange(token);
+            }
+
+            token = parser.nextToken();
+        }
+
+        return elements;
+    }
+
+    private int getDepthChange(final JsonToken token) {
+        if (token.isStructStart()) {
+            return 1;
+        }
+
+        if (token.isStructEnd()) {
+            return -1;
+        }
+
+        return 0;
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.docspace;
+
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceMembers;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceRoomInvitation;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceRoomInvitationRequest;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+// Merges share requests for one room arriving within a short window into a single PUT to DocSpace.
+// Only requests with the same notification settings are merged. If DocSpace rejects the merged request,
+// every caller's request is sent on its own, so one invalid invitee does not fail the others
+@Component
+@RequiredArgsConstructor
+public class DocspaceRoomShareAggregator {
+    private final ReactiveDocspaceClient reactiveDocspaceClient;
+
+    private final Map<ShareKey, PendingShare> pendingShares = new ConcurrentHashMap<>();
+
+    @Value("${app.docspace-room-share.window}")
+    private Duration window;
+
+    public Mono<DocspaceMembers> shareRoom(final Long roomId,
+                                           final DocspaceRoomInvitationRequest docspaceRoomInvitationRequest) {
+        User user = SecurityUtils.getCurrentUser();
+        ShareKey shareKey = new ShareKey(
+                user.getId(),
+                user.getClient().getSettings().getUrl(),
+                roomId,
+                docspaceRoomInvitationRequest.isNotify(),
+                docspaceRoomInvitationRequest.getMessage()
+        );
+
+        PendingRequest pendingRequest = new PendingRequest(docspaceRoomInvitationRequest, Sinks.one());
+
+        pendingShares.compute(shareKey, (key, existingPendingShare) -> {
+            PendingShare share = existingPendingShare;
+            if (share == null) {
+                share = new PendingShare(user);
+
+                PendingShare scheduledShare = share;
+                Mono.delay(window).subscribe(value -> send(key, scheduledShare));
+            }
+
+            share.add(pendingRequest);
+            return share;
+        });
+
+        return pendingRequest.result().asMono();
+    }
+
+    private void send(final ShareKey shareKey, final PendingShare pendingShare) {
+        // Requests arriving from now on start the next window
+        pendingShares.remove(shareKey, pendingShare);
+
+        List<PendingRequest> pendingRequests = pendingShare.requests;
+
+        shareRoom(shareKey, pendingShare.user, pendingShare.toRequest(shareKey)).subscribe(
+                docspaceMembers -> pendingRequests.forEach(request -> request.result().tryEmitValue(docspaceMembers)),
+                e -> {
+                    if (pendingRequests.size() > 1 && isRejected(e)) {
+                        pendingRequests.forEach(request -> sendSeparately(shareKey, pendingShare.user, request));
+                        return;
+                    }
+
+                    pendingRequests.forEach(request -> request.result().tryEmitError(e));
+                },
+                () -> pendingRequests.forEach(request -> request.result().tryEmitEmpty())
+        );
+    }
+
+    private void sendSeparately(final ShareKey shareKey, final User user, final PendingRequest pendingRequest) {
+        shareRoom(shareKey, user, pendingRequest.request()).subscribe(
+                docspaceMembers -> pendingRequest.result().tryEmitValue(docspaceMembers),
+                e -> pendingRequest.result().tryEmitError(e),
+                () -> pendingRequest.result().tryEmitEmpty()
+        );
+    }
+
+    private Mono<DocspaceMembers> shareRoom(final ShareKey shareKey, final User user,
+                                            final DocspaceRoomInvitationRequest docspaceRoomInvitationRequest) {
+        return SecurityUtils.runAs(new SecurityUtils.RunAsWork<Mono<DocspaceMembers>>() {
+            public Mono<DocspaceMembers> doWork() {
+                return reactiveDocspaceClient.shareRoom(shareKey.roomId(), docspaceRoomInvitationRequest);
+            }
+        }, user);
+    }
+
+    // A client error may be caused by a single request of the batch, server and connection errors are not
+    private boolean isRejected(final Throwable e) {
+        return e instanceof WebClientResponseException
+                && ((WebClientResponseException) e).getStatusCode().is4xxClientError();
+    }
+
+    private record ShareKey(Long userId, String url, Long roomId, boolean notify, String message) {
+    }
+
+    private record PendingRequest(DocspaceRoomInvitationRequest request, Sinks.One<DocspaceMembers> result) {
+    }
+
+    // Only changed inside pendingShares.compute and read in send after the entry is removed from the map,
+    // so the map bin lock already orders every access
+    private static final class PendingShare {
+        private final User user;
+        private final List<PendingRequest> requests = new ArrayList<>();
+
+        private PendingShare(final User user) {
+            this.user = user;
+        }
+
+        private void add(final PendingRequest pendingRequest) {
+            requests.add(pendingRequest);
+        }
+
+        private DocspaceRoomInvitationRequest toRequest(final ShareKey shareKey) {
+            // Last write wins for an invitee asked for more than once within the window
+            Map<UUID, DocspaceRoomInvitation> invitations = new LinkedHashMap<>();
+            for (PendingRequest pendingRequest : requests) {
+                for (DocspaceRoomInvitation invitation : pendingRequest.request().getInvitations()) {
+                    invitations.remove(invitation.getId());
+                    invitations.put(invitation.getId(), invitation);
+                }
+            }
+
+            return DocspaceRoomInvitationRequest.builder()
+                    .invitations(new ArrayList<>(invitations.values()))
+                    .notify(shareKey.notify())
+                    .message(shareKey.message())
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.docspace;
+
+import com.onlyoffice.docspacepipedrive.entity.DocspaceAccount;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.entity.docspaceaccount.DocspaceToken;
+import com.onlyoffice.docspacepipedrive.service.DocspaceAccountService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DocspaceTokenManager {
+    private static final String REDIS_KEY_PREFIX = "docspace-pipedrive:docspace-reauthentication:";
+    // Deletes the lock only if it is still held by this owner, it may have expired and been taken by another node
+    private static final RedisScript<Long> UNLOCK_SCRIPT = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class
+    );
+
+    private final DocspaceAccountService docspaceAccountService;
+    private final WebClient docspaceAuthenticationWebClient;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // Re-authentications in progress per user, concurrent callers wait for the same login
+    private final Map<Long, Mono<DocspaceToken>> reauthentications = new ConcurrentHashMap<>();
+
+    @Value("${app.docspace-reauthentication.lock-enabled}")
+    private boolean lockEnabled;
+    @Value("${app.docspace-reauthentication.lock-ttl}")
+    private Duration lockTtl;
+    @Value("${app.docspace-reauthentication.lock-poll-interval}")
+    private Duration lockPollInterval;
+
+    public Mono<DocspaceToken> reauthenticate(final User user, final DocspaceToken rejectedToken) {
+        return Mono.defer(() -> {
+            return reauthentications.computeIfAbsent(user.getId(), userId -> {
+                return Mono.defer(() -> reauthenticateOnce(user, rejectedToken))
+                        .doFinally(signalType -> reauthentications.remove(userId))
+                        .cache();
+            });
+        });
+    }
+
+    // Renews a token that has not been rejected yet, shares the login with concurrent re-authentication
+    public Mono<DocspaceToken> refresh(final User user) {
+        return reauthenticate(user, user.getDocspaceAccount().getDocspaceToken());
+    }
+
+    // Database and Redis calls are blocking, they run on boundedElastic and never on the DocSpace event loop
+    private Mono<DocspaceToken> reauthenticateOnce(final User user, final DocspaceToken rejectedToken) {
+        // The token may have been renewed already by a login that finished just before this one started
+        return findDocspaceToken(user.getId())
+                .filter(currentToken -> isRenewed(currentToken, rejectedToken))
+                .switchIfEmpty(Mono.defer(() -> {
+                    if (!lockEnabled) {
+                        return login(user);
+                    }
+
+                    return loginWithLock(user, rejectedToken);
+                }));
+    }
+
+    private Mono<DocspaceToken> loginWithLock(final User user, final DocspaceToken rejectedToken) {
+        String lockKey = REDIS_KEY_PREFIX + user.getId();
+        String lockOwner = UUID.randomUUID().toString();
+
+        return tryLock(lockKey, lockOwner).flatMap(acquired -> {
+            if (!acquired) {
+                // Another node is logging in for this user, pick up its token instead of logging in again
+                return waitForRenewedToken(user.getId(), rejectedToken)
+                        .switchIfEmpty(Mono.defer(() -> login(user)));
+            }
+
+            return login(user).doFinally(signalType -> unlock(lockKey, lockOwner).subscribe());
+        });
+    }
+
+    private Mono<DocspaceToken> login(final User user) {
+        DocspaceAccount docspaceAccount = user.getDocspaceAccount();
+
+        Map<String, String> map = new HashMap<>();
+
+        map.put("userName", docspaceAccount.getEmail());
+        map.put("passwordHash", docspaceAccount.getPasswordHash());
+
+        return docspaceAuthenticationWebClient.post()
+                .uri(user.getClient().getSettings().getUrl() + "/api/2.0/authentication")
+                .bodyValue(map)
+                .retrieve()
+                .bodyToMono(Map.class)
+                .transform(responseMono -> {
+                    return responseMono.flatMap(responseMap -> {
+                        Map<String, Object> response = (Map<String, Object>) responseMap.get("response");
+                        return Mono.just((String) response.get("token"));
+                    });
+                })
+                .flatMap(token -> {
+                    return Mono.fromCallable(() -> docspaceAccountService.saveToken(user.getId(), token))
+                            .subscribeOn(Schedulers.boundedElastic());
+                })
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    if (e.getStatusCode().equals(HttpStatus.UNAUTHORIZED)) {
+                        return Mono.fromRunnable(() -> docspaceAccountService.deleteById(user.getId()))
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .then(Mono.error(e));
+                    }
+
+                    return Mono.error(e);
+                });
+    }
+
+    private Mono<DocspaceToken> waitForRenewedToken(final Long userId, final DocspaceToken rejectedToken) {
+        return findDocspaceToken(userId)
+                .filter(docspaceToken -> isRenewed(docspaceToken, rejectedToken))
+                .repeatWhenEmpty(repeats -> repeats.delayElements(lockPollInterval))
+                .timeout(lockTtl, Mono.empty());
+    }
+
+    private Mono<DocspaceToken> findDocspaceToken(final Long userId) {
+        return Mono.fromCallable(() -> {
+                    DocspaceAccount docspaceAccount = docspaceAccountService.findById(userId);
+
+                    if (docspaceAccount == null) {
+                        return null;
+                    }
+
+                    return docspaceAccount.getDocspaceToken();
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private boolean isRenewed(final DocspaceToken docspaceToken, final DocspaceToken rejectedToken) {
+        if (docspaceToken == null || docspaceToken.getValue() == null) {
+            return false;
+        }
+
+        return rejectedToken == null || !docspaceToken.getValue().equals(rejectedToken.getValue());
+    }
+
+    private Mono<Boolean> tryLock(final String lockKey, final String lockOwner) {
+        return Mono.fromCallable(() -> {
+                    try {
+                        Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, lockOwner, lockTtl);
+
+                        return !Boolean.FALSE.equals(acquired);
+                    } catch (Exception e) {
+                        // Without Redis every node logs in on its own, as before the lock
+                        log.warn(MessageFormat.format(
+                                "Failed to acquire DocSpace re-authentication lock ({0}) in Redis: {1}",
+                                lockKey,
+                                e.getMessage()
+                        ));
+
+                        return true;
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Void> unlock(final String lockKey, final String lockOwner) {
+        return Mono.<Void>fromRunnable(() -> {
+                    try {
+                        stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey), lockOwner);
+                    } catch (Exception e) {
+                        log.warn(MessageFormat.format(
+                                "Failed to release DocSpace re-authentication lock ({0}) in Redis: {1}",
+                                lockKey,
+                                e.getMessage()
+                        ));
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
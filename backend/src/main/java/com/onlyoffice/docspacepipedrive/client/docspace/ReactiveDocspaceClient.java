@@ -0,0 +1,309 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.docspace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceAuthentication;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceGroup;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceMembers;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceResponse;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceRoom;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceRoomInvitationRequest;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceUser;
+import com.onlyoffice.docspacepipedrive.client.filter.HttpResponseCacheExchangeFilterFunction;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.exceptions.DocspaceWebClientResponseException;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+
+@Component
+@RequiredArgsConstructor
+public class ReactiveDocspaceClient {
+    private static final int PAGINATION_COUNT = 100;
+    private final WebClient docspaceWebClient;
+    private final WebClient docspaceAuthenticationWebClient;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.docspace.find-users-concurrency}")
+    private int findUsersConcurrency;
+
+    public Mono<DocspaceAuthentication> login(final String userName, final String passwordHash) {
+        User user = SecurityUtils.getCurrentUser();
+
+        Map<String, String> map = new HashMap<>();
+
+        map.put("userName", userName);
+        map.put("passwordHash", passwordHash);
+
+        return docspaceAuthenticationWebClient.post()
+                .uri(user.getClient().getSettings().getUrl() + "/api/2.0/authentication")
+                .bodyValue(map)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<DocspaceResponse<DocspaceAuthentication>>() { })
+                .map(DocspaceResponse<DocspaceAuthentication>::getResponse)
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    return Mono.error(new DocspaceWebClientResponseException(e));
+                });
+    }
+
+    public Mono<DocspaceUser> getUser(final String email) {
+        return docspaceWebClient.get()
+                .uri(uriBuilder -> {
+                    return uriBuilder.path("/api/2.0/people/email")
+                            .queryParam("email", email)
+                            .build();
+                })
+                .attributes(userAttribute(SecurityUtils.getCurrentUser()))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<DocspaceResponse<DocspaceUser>>() { })
+                .map(DocspaceResponse<DocspaceUser>::getResponse)
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    return Mono.error(new DocspaceWebClientResponseException(e));
+                });
+    }
+
+    public Mono<DocspaceUser> getUser(final UUID id) {
+        return docspaceWebClient.get()
+                .uri(uriBuilder -> {
+                    return uriBuilder.path("/api/2.0/people/{id}")
+                            .build(id);
+                })
+                .attributes(userAttribute(SecurityUtils.getCurrentUser()))
+                .attributes(HttpResponseCacheExchangeFilterFunction.cacheFor(SecurityUtils.getCurrentUser()))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<DocspaceResponse<DocspaceUser>>() { })
+                .map(DocspaceResponse<DocspaceUser>::getResponse)
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    return Mono.error(new DocspaceWebClientResponseException(e));
+                });
+    }
+
+    public Flux<DocspaceUser> findUsers(final Integer employeeType) {
+        return findUsers(employeeType, DocspaceUser.class);
+    }
+
+    // Users are decoded one by one as pages arrive, a projection type keeps only the fields a caller needs
+    public <T> Flux<T> findUsers(final Integer employeeType, final Class<T> elementType) {
+        // Pages are requested from reactor threads, so the user is captured here
+        User user = SecurityUtils.getCurrentUser();
+
+        return Flux.defer(() -> {
+            DocspaceResponseArrayDecoder<T> firstPageDecoder = new DocspaceResponseArrayDecoder<>(
+                    objectMapper,
+                    elementType
+            );
+
+            // The first page returns the total, the rest of the pages are fetched concurrently in order
+            Flux<T> remainingPages = Flux.defer(() -> {
+                int remainingPagesCount = Math.max(0, (firstPageDecoder.getTotal() - 1) / PAGINATION_COUNT);
+
+                return Flux.range(1, remainingPagesCount)
+                        .flatMapSequential(
+                                page -> findUsersPage(
+                                        user,
+                                        employeeType,
+                                        page * PAGINATION_COUNT,
+                                        new DocspaceResponseArrayDecoder<>(objectMapper, elementType)
+                                ),
+                                findUsersConcurrency
+                        );
+            });
+
+            return Flux.concat(findUsersPage(user, employeeType, 0, firstPageDecoder), remainingPages);
+        });
+    }
+
+    public Mono<DocspaceRoom> createRoom(final String title, final Integer roomType) {
+        Map<String, Object> map = new HashMap<>();
+
+        map.put("title", title);
+        map.put("roomType", roomType);
+
+        return docspaceWebClient.post()
+                .uri("/api/2.0/files/rooms")
+                .bodyValue(map)
+                .attributes(userAttribute(SecurityUtils.getCurrentUser()))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<DocspaceResponse<DocspaceRoom>>() { })
+                .map(DocspaceResponse<DocspaceRoom>::getResponse)
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    return Mono.error(new DocspaceWebClientResponseException(e));
+                });
+    }
+
+    public Mono<DocspaceMembers> shareRoom(final Long roomId,
+                                           final DocspaceRoomInvitationRequest docspaceRoomInvitationRequest) {
+        return docspaceWebClient.put()
+                .uri(uriBuilder -> {
+                    return uriBuilder.path("api/2.0/files/rooms/{roomId}/share")
+                            .build(roomId);
+                })
+                .bodyValue(docspaceRoomInvitationRequest)
+                .attributes(userAttribute(SecurityUtils.getCurrentUser()))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<DocspaceResponse<DocspaceMembers>>() { })
+                .map(DocspaceResponse<DocspaceMembers>::getResponse)
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    return Mono.error(new DocspaceWebClientResponseException(e));
+                });
+    }
+
+    public Mono<DocspaceRoom> addTagsToRoom(final Long roomId, final List<String> tagNames) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("names", tagNames);
+
+        return docspaceWebClient.put()
+                .uri(uriBuilder -> {
+                    return uriBuilder.path("api/2.0/files/rooms/{roomId}/tags")
+                            .build(roomId);
+                })
+                .bodyValue(map)
+                .attributes(userAttribute(SecurityUtils.getCurrentUser()))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<DocspaceResponse<DocspaceRoom>>() { })
+                .map(DocspaceResponse<DocspaceRoom>::getResponse)
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    return Mono.error(new DocspaceWebClientResponseException(e));
+                });
+    }
+
+    public Mono<DocspaceGroup> createGroup(final String name, final UUID owner, final List<UUID> members) {
+        Map<String, Object> map = new HashMap<>();
+
+        map.put("groupName", name);
+        map.put("groupManager", owner);
+        map.put("members", members);
+
+        return docspaceWebClient.post()
+                .uri("/api/2.0/group")
+                .bodyValue(map)
+                .attributes(userAttribute(SecurityUtils.getCurrentUser()))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<DocspaceResponse<DocspaceGroup>>() { })
+                .map(DocspaceResponse<DocspaceGroup>::getResponse)
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    return Mono.error(new DocspaceWebClientResponseException(e));
+                });
+    }
+
+    public Mono<DocspaceGroup> updateGroup(final UUID groupId, final String groupName, final UUID groupManager,
+                                           final List<UUID> membersToAdd, final List<UUID> membersToRemove) {
+        Map<String, Object> map = new HashMap<>();
+
+        if (groupId != null) {
+            map.put("groupName", groupName);
+        }
+        if (groupManager != null) {
+            map.put("groupManager", groupManager);
+        }
+        if (membersToAdd != null) {
+            map.put("membersToAdd", membersToAdd);
+        }
+        if (membersToRemove != null) {
+            map.put("membersToRemove", membersToRemove);
+        }
+
+        return docspaceWebClient.put()
+                .uri(uriBuilder -> {
+                    return uriBuilder.path("/api/2.0/group/{groupId}")
+                            .build(groupId);
+                })
+                .bodyValue(map)
+                .attributes(userAttribute(SecurityUtils.getCurrentUser()))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<DocspaceResponse<DocspaceGroup>>() { })
+                .map(DocspaceResponse<DocspaceGroup>::getResponse)
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    return Mono.error(new DocspaceWebClientResponseException(e));
+                });
+    }
+
+    public Mono<List<String>> getTags() {
+        return docspaceWebClient.get()
+                .uri("api/2.0/files/tags")
+                .attributes(userAttribute(SecurityUtils.getCurrentUser()))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<DocspaceResponse<List<String>>>() { })
+                .map(DocspaceResponse<List<String>>::getResponse)
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    return Mono.error(new DocspaceWebClientResponseException(e));
+                });
+    }
+
+    public Mono<String> createTag(final String tagName) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", tagName);
+
+        return docspaceWebClient.post()
+                .uri("api/2.0/files/tags")
+                .bodyValue(map)
+                .attributes(userAttribute(SecurityUtils.getCurrentUser()))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<DocspaceResponse<String>>() { })
+                .map(DocspaceResponse<String>::getResponse)
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    return Mono.error(new DocspaceWebClientResponseException(e));
+                });
+    }
+
+    private <T> Flux<T> findUsersPage(final User user, final Integer employeeType, final int startIndex,
+                                      final DocspaceResponseArrayDecoder<T> decoder) {
+        return docspaceWebClient.get()
+                .uri(UriComponentsBuilder.fromUriString("")
+                        .path("/api/2.0/people/simple/filter")
+                        .queryParam("employeeType", employeeType)
+                        .queryParam("startIndex", startIndex)
+                        .queryParam("count", PAGINATION_COUNT)
+                        .build()
+                        .toUriString()
+                )
+                .attributes(userAttribute(user))
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .concatMapIterable(decoder::decode)
+                .concatWith(Flux.defer(() -> Flux.fromIterable(decoder.endOfInput())))
+                .onErrorResume(WebClientResponseException.class, e -> {
+                    return Mono.error(new DocspaceWebClientResponseException(e));
+                });
+    }
+
+    private Consumer<Map<String, Object>> userAttribute(final User user) {
+        return attributes -> {
+            if (user != null) {
+                attributes.put(User.class.getName(), user);
+            }
+        };
+    }
+}
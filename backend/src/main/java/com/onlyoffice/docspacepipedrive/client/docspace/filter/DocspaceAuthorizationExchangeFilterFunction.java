@@ -18,44 +18,38 @@
 
 package com.onlyoffice.docspacepipedrive.client.docspace.filter;
 
+import com.onlyoffice.docspacepipedrive.client.docspace.DocspaceTokenManager;
 import com.onlyoffice.docspacepipedrive.entity.DocspaceAccount;
 import com.onlyoffice.docspacepipedrive.entity.User;
 import com.onlyoffice.docspacepipedrive.entity.docspaceaccount.DocspaceToken;
 import com.onlyoffice.docspacepipedrive.exceptions.DocspaceAuthorizationException;
 import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
-import com.onlyoffice.docspacepipedrive.service.DocspaceAccountService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.ExchangeFunction;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import org.springframework.web.util.UriBuilder;
 import org.springframework.web.util.UriBuilderFactory;
 import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
 
 import java.net.URI;
 import java.text.MessageFormat;
-import java.util.HashMap;
-import java.util.Map;
 
 
 public class DocspaceAuthorizationExchangeFilterFunction implements ExchangeFilterFunction {
-    private final DocspaceAccountService docspaceAccountService;
-    private final WebClient webClient;
+    private final DocspaceTokenManager docspaceTokenManager;
 
-    public DocspaceAuthorizationExchangeFilterFunction(final DocspaceAccountService docspaceAccountService) {
-        this.docspaceAccountService = docspaceAccountService;
-
-        this.webClient = WebClient.builder().build();
+    public DocspaceAuthorizationExchangeFilterFunction(final DocspaceTokenManager docspaceTokenManager) {
+        this.docspaceTokenManager = docspaceTokenManager;
     }
 
     @Override
     public Mono<ClientResponse> filter(final ClientRequest request, final ExchangeFunction next) {
-        return Mono.just(configureRequest(request))
+        return Mono.deferContextual(context -> Mono.just(configureRequest(request, context)))
                 .flatMap(configuredRequest -> {
                     return authorize(configuredRequest)
                             .flatMap(req -> {
@@ -73,8 +67,11 @@ public class DocspaceAuthorizationExchangeFilterFunction implements ExchangeFilt
                 });
     }
 
-    private ClientRequest configureRequest(final ClientRequest request) {
-        User user = SecurityUtils.getCurrentUser();
+    private ClientRequest configureRequest(final ClientRequest request, final ContextView context) {
+        // Reactive callers capture the user on assembly, as the request can be subscribed from a reactor thread
+        User user = request.attribute(User.class.getName())
+                .map(User.class::cast)
+                .orElseGet(() -> context.getOrDefault(User.class, SecurityUtils.getCurrentUser()));
 
         UriBuilderFactory uriBuilderFactory = new DefaultUriBuilderFactory(user.getClient().getSettings().getUrl());
         UriBuilder uriBuilder = uriBuilderFactory.uriString(request.url().toString());
@@ -121,39 +118,11 @@ public class DocspaceAuthorizationExchangeFilterFunction implements ExchangeFilt
             );
         }
 
-        return login(user.getClient().getSettings().getUrl(), docspaceAccount).map(token -> {
-            return docspaceAccountService.saveToken(
-                    user.getId(),
-                    token
-            );
-        }).map(docspaceToken -> {
-            user.getDocspaceAccount().setDocspaceToken(docspaceToken);
-            return setAuthorizationToRequest(request, docspaceToken);
-        }).onErrorResume(WebClientResponseException.class, e -> {
-            if (e.getStatusCode().equals(HttpStatus.UNAUTHORIZED)) {
-                docspaceAccountService.deleteById(user.getId());
-            }
-
-            return Mono.error(e);
-        });
-    }
-
-    private Mono<String> login(final String url, final DocspaceAccount docspaceAccount) {
-        Map<String, String> map = new HashMap<>();
-
-        map.put("userName", docspaceAccount.getEmail());
-        map.put("passwordHash", docspaceAccount.getPasswordHash());
-
-        return webClient.post()
-                .uri(url + "/api/2.0/authentication")
-                .bodyValue(map)
-                .retrieve()
-                .bodyToMono(Map.class)
-                .transform(responseMono -> {
-                    return responseMono.flatMap(responseMap -> {
-                        Map<String, Object> response = (Map<String, Object>) responseMap.get("response");
-                        return Mono.just((String) response.get("token"));
-                    });
+        // Concurrent 401s for the same user share one login and one token write
+        return docspaceTokenManager.reauthenticate(user, docspaceAccount.getDocspaceToken())
+                .map(docspaceToken -> {
+                    user.getDocspaceAccount().setDocspaceToken(docspaceToken);
+                    return setAuthorizationToRequest(request, docspaceToken);
                 });
     }
 
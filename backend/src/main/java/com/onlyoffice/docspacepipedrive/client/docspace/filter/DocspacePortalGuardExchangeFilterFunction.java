@@ -0,0 +1,41 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.docspace.filter;
+
+import com.onlyoffice.docspacepipedrive.client.docspace.DocspacePortalGuard;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+
+public class DocspacePortalGuardExchangeFilterFunction implements ExchangeFilterFunction {
+    private final DocspacePortalGuard docspacePortalGuard;
+
+    public DocspacePortalGuardExchangeFilterFunction(final DocspacePortalGuard docspacePortalGuard) {
+        this.docspacePortalGuard = docspacePortalGuard;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(final ClientRequest request, final ExchangeFunction next) {
+        // Registered after the authorization filter, so the request URL already points at the portal
+        return docspacePortalGuard.protect(request.url(), next.exchange(request));
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.filter;
+
+import com.onlyoffice.docspacepipedrive.cache.HttpResponseCache;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.function.Consumer;
+
+
+// Serves opted-in GET requests from HttpResponseCache within max-age and revalidates them with
+// If-None-Match / If-Modified-Since after that, so unchanged resources come back as 304
+public class HttpResponseCacheExchangeFilterFunction implements ExchangeFilterFunction {
+    private static final String CACHE_USER_ID_ATTRIBUTE =
+            HttpResponseCacheExchangeFilterFunction.class.getName() + ".userId";
+    private static final String MAX_AGE_DIRECTIVE = "max-age=";
+
+    private final HttpResponseCache httpResponseCache;
+
+    public HttpResponseCacheExchangeFilterFunction(final HttpResponseCache httpResponseCache) {
+        this.httpResponseCache = httpResponseCache;
+    }
+
+    public static Consumer<Map<String, Object>> cacheFor(final User user) {
+        return attributes -> {
+            if (user != null) {
+                attributes.put(CACHE_USER_ID_ATTRIBUTE, user.getId());
+            }
+        };
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(final ClientRequest request, final ExchangeFunction next) {
+        if (!HttpMethod.GET.equals(request.method())) {
+            // A write may change what was cached for this user
+            User user = request.attribute(User.class.getName())
+                    .map(User.class::cast)
+                    .orElseGet(SecurityUtils::getCurrentUser);
+
+            if (user != null) {
+                httpResponseCache.invalidate(user.getId());
+            }
+
+            return next.exchange(request);
+        }
+
+        Long userId = (Long) request.attribute(CACHE_USER_ID_ATTRIBUTE).orElse(null);
+        if (userId == null) {
+            return next.exchange(request);
+        }
+
+        HttpResponseCache.CachedResponse cachedResponse = httpResponseCache.get(userId, request.url());
+        if (cachedResponse != null && cachedResponse.isFresh()) {
+            return Mono.just(toClientResponse(cachedResponse));
+        }
+
+        return next.exchange(toConditionalRequest(request, cachedResponse))
+                .flatMap(clientResponse -> {
+                    if (cachedResponse != null && clientResponse.statusCode().equals(HttpStatus.NOT_MODIFIED)) {
+                        return clientResponse.releaseBody().then(Mono.fromSupplier(() -> {
+                            HttpResponseCache.CachedResponse revalidatedResponse = cachedResponse.revalidate(
+                                    getFreshUntil(clientResponse.headers().asHttpHeaders())
+                            );
+                            httpResponseCache.put(userId, request.url(), revalidatedResponse);
+
+                            return toClientResponse(revalidatedResponse);
+                        }));
+                    }
+
+                    if (!isCacheable(clientResponse)) {
+                        return Mono.just(clientResponse);
+                    }
+
+                    return DataBufferUtils.join(clientResponse.body(BodyExtractors.toDataBuffers()))
+                            .map(dataBuffer -> {
+                                byte[] body = new byte[dataBuffer.readableByteCount()];
+                                dataBuffer.read(body);
+                                DataBufferUtils.release(dataBuffer);
+
+                                HttpHeaders headers = new HttpHeaders();
+                                headers.putAll(clientResponse.headers().asHttpHeaders());
+
+                                HttpResponseCache.CachedResponse storedResponse = new HttpResponseCache.CachedResponse(
+                                        clientResponse.statusCode(),
+                                        headers,
+                                        body,
+                                        clientResponse.strategies(),
+                                        getFreshUntil(headers)
+                                );
+                                httpResponseCache.put(userId, request.url(), storedResponse);
+
+                                return toClientResponse(storedResponse);
+                            });
+                });
+    }
+
+    private ClientRequest toConditionalRequest(final ClientRequest request,
+                                               final HttpResponseCache.CachedResponse cachedResponse) {
+        if (cachedResponse == null) {
+            return request;
+        }
+
+        return ClientRequest.from(request)
+                .headers(headers -> {
+                    String eTag = cachedResponse.headers().getETag();
+                    if (eTag != null) {
+                        headers.setIfNoneMatch(eTag);
+                    }
+
+                    String lastModified = cachedResponse.headers().getFirst(HttpHeaders.LAST_MODIFIED);
+                    if (lastModified != null) {
+                        headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+                    }
+                })
+                .build();
+    }
+
+    private boolean isCacheable(final ClientResponse clientResponse) {
+        if (!clientResponse.statusCode().equals(HttpStatus.OK)) {
+            return false;
+        }
+
+        HttpHeaders headers = clientResponse.headers().asHttpHeaders();
+
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null && cacheControl.contains("no-store")) {
+            return false;
+        }
+
+        // Without validators the response can only be reused within max-age
+        return headers.getETag() != null
+                || headers.getFirst(HttpHeaders.LAST_MODIFIED) != null
+                || getFreshUntil(headers).isAfter(Instant.now());
+    }
+
+    private Instant getFreshUntil(final HttpHeaders headers) {
+        Instant now = Instant.now();
+
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null || cacheControl.contains("no-cache")) {
+            return now;
+        }
+
+        for (String directive : cacheControl.split(",")) {
+            String trimmedDirective = directive.trim();
+
+            if (trimmedDirective.startsWith(MAX_AGE_DIRECTIVE)) {
+                try {
+                    return now.plusSeconds(Long.parseLong(trimmedDirective.substring(MAX_AGE_DIRECTIVE.length())));
+                } catch (NumberFormatException e) {
+                    return now;
+                }
+            }
+        }
+
+        return now;
+    }
+
+    private ClientResponse toClientResponse(final HttpResponseCache.CachedResponse cachedResponse) {
+        return ClientResponse.create(cachedResponse.statusCode(), cachedResponse.strategies())
+                .headers(headers -> headers.addAll(cachedResponse.headers()))
+                .body(Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(cachedResponse.body()))))
+                .build();
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.filter;
+
+import java.time.Duration;
+import java.time.Instant;
+
+
+// Retries earn tokens from regular requests, so during an outage retries stay a fraction of the traffic
+public class HttpRetryBudget {
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    private final double ratio;
+    private final double minRetriesPerSecond;
+    private final double capacity;
+
+    private double tokens;
+    private Instant refilledAt;
+
+    public HttpRetryBudget(final double ratio, final double minRetriesPerSecond, final double capacity) {
+        this.ratio = ratio;
+        this.minRetriesPerSecond = minRetriesPerSecond;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.refilledAt = Instant.now();
+    }
+
+    public synchronized void recordRequest() {
+        refill();
+        tokens = Math.min(capacity, tokens + ratio);
+    }
+
+    public synchronized boolean tryAcquire() {
+        refill();
+
+        if (tokens < 1) {
+            return false;
+        }
+
+        tokens--;
+        return true;
+    }
+
+    private void refill() {
+        Instant now = Instant.now();
+        double seconds = Duration.between(refilledAt, now).toMillis() / MILLIS_PER_SECOND;
+
+        tokens = Math.min(capacity, tokens + seconds * minRetriesPerSecond);
+        refilledAt = now;
+    }
+}
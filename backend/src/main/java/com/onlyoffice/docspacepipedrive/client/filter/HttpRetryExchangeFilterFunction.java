@@ -0,0 +1,194 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.filter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.PathMatcher;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+// Retries idempotent requests on transient failures with decorrelated jitter backoff,
+// maximum attempts can be overridden per endpoint path pattern. A PUT with side effects beyond its resource
+// state (the DocSpace room share notifies invitees) is excluded with a single attempt for its endpoint
+public class HttpRetryExchangeFilterFunction implements ExchangeFilterFunction {
+    private static final Set<HttpMethod> IDEMPOTENT_METHODS = Set.of(
+            HttpMethod.GET,
+            HttpMethod.HEAD,
+            HttpMethod.OPTIONS,
+            HttpMethod.PUT,
+            HttpMethod.DELETE
+    );
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(429, 502, 503, 504);
+    private static final int JITTER_MULTIPLIER = 3;
+
+    private final String name;
+    private final int maxAttempts;
+    private final Duration baseDelay;
+    private final Duration maxDelay;
+    private final Map<String, Integer> endpointMaxAttempts;
+    private final HttpRetryBudget httpRetryBudget;
+    private final MeterRegistry meterRegistry;
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    public HttpRetryExchangeFilterFunction(final String name, final int maxAttempts, final Duration baseDelay,
+                                           final Duration maxDelay, final Map<String, Integer> endpointMaxAttempts,
+                                           final HttpRetryBudget httpRetryBudget,
+                                           final MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxAttempts = maxAttempts;
+        this.baseDelay = baseDelay;
+        this.maxDelay = maxDelay;
+        this.endpointMaxAttempts = endpointMaxAttempts;
+        this.httpRetryBudget = httpRetryBudget;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(final ClientRequest request, final ExchangeFunction next) {
+        int attempts = getMaxAttempts(request);
+
+        if (!IDEMPOTENT_METHODS.contains(request.method()) || attempts <= 1) {
+            return next.exchange(request);
+        }
+
+        httpRetryBudget.recordRequest();
+
+        // Built once on the calling thread and resubscribed for every attempt, so filters further down
+        // keep what they captured from the caller (current user, request context)
+        Mono<ClientResponse> exchange = next.exchange(request);
+
+        return exchange(exchange, 1, attempts, baseDelay);
+    }
+
+    private Mono<ClientResponse> exchange(final Mono<ClientResponse> exchange, final int attempt,
+                                          final int attempts, final Duration previousDelay) {
+        return exchange
+                .flatMap(clientResponse -> {
+                    if (attempt >= attempts || !RETRYABLE_STATUSES.contains(clientResponse.statusCode().value())) {
+                        return Mono.just(clientResponse);
+                    }
+
+                    Duration delay = getRetryAfter(clientResponse.headers().asHttpHeaders());
+                    if (delay == null) {
+                        delay = getNextDelay(previousDelay);
+                    } else if (delay.compareTo(maxDelay) > 0) {
+                        countRetry("retry_after_too_long");
+                        return Mono.just(clientResponse);
+                    }
+
+                    if (!httpRetryBudget.tryAcquire()) {
+                        countRetry("budget_exhausted");
+                        return Mono.just(clientResponse);
+                    }
+
+                    countRetry("retried");
+
+                    Duration retryDelay = delay;
+                    return clientResponse.releaseBody()
+                            .then(Mono.delay(retryDelay))
+                            .then(Mono.defer(() -> exchange(exchange, attempt + 1, attempts, retryDelay)));
+                })
+                .onErrorResume(
+                        e -> attempt < attempts && isConnectionError(e),
+                        e -> {
+                            if (!httpRetryBudget.tryAcquire()) {
+                                countRetry("budget_exhausted");
+                                return Mono.error(e);
+                            }
+
+                            countRetry("retried");
+
+                            Duration retryDelay = getNextDelay(previousDelay);
+                            return Mono.delay(retryDelay)
+                                    .then(Mono.defer(() -> exchange(exchange, attempt + 1, attempts, retryDelay)));
+                        }
+                );
+    }
+
+    private int getMaxAttempts(final ClientRequest request) {
+        String path = request.url().getPath();
+
+        for (Map.Entry<String, Integer> entry : endpointMaxAttempts.entrySet()) {
+            if (pathMatcher.match(entry.getKey(), path)) {
+                return entry.getValue();
+            }
+        }
+
+        return maxAttempts;
+    }
+
+    // Decorrelated jitter: random between the base delay and three times the previous one, capped at max delay
+    private Duration getNextDelay(final Duration previousDelay) {
+        long lowerBound = baseDelay.toMillis();
+        long upperBound = Math.max(lowerBound, previousDelay.toMillis() * JITTER_MULTIPLIER);
+
+        long delay = ThreadLocalRandom.current().nextLong(lowerBound, upperBound + 1);
+
+        return Duration.ofMillis(Math.min(delay, maxDelay.toMillis()));
+    }
+
+    private Duration getRetryAfter(final HttpHeaders headers) {
+        String retryAfter = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        if (retryAfter == null) {
+            return null;
+        }
+
+        try {
+            return Duration.ofSeconds(Math.max(Long.parseLong(retryAfter.trim()), 0));
+        } catch (NumberFormatException e) {
+            // HTTP-date form
+            try {
+                Instant retryAt = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+                        .toInstant();
+                Duration delay = Duration.between(Instant.now(), retryAt);
+
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException dateTimeParseException) {
+                return null;
+            }
+        }
+    }
+
+    private boolean isConnectionError(final Throwable e) {
+        // Connection refused / reset and prematurely closed connections, read timeouts are not retried
+        return e instanceof WebClientRequestException && e.getCause() instanceof IOException;
+    }
+
+    private void countRetry(final String result) {
+        meterRegistry.counter("http.client.retries", "client", name, "result", result).increment();
+    }
+}
@@ -18,6 +18,7 @@
 
 package com.onlyoffice.docspacepipedrive.client.pipedrive;
 
+import com.onlyoffice.docspacepipedrive.client.filter.HttpResponseCacheExchangeFilterFunction;
 import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDeal;
 import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDealFollower;
 import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDealFollowerEvent;
@@ -39,6 +40,7 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -102,7 +104,9 @@ public class PipedriveClient {
         return dealFollowers;
     }
 
-    public List<PipedriveDealFollowerEvent> getDealFollowersFlow(final Long id) {
+    // The flow is returned newest first, so paging stops at the first event not newer than afterTime
+    // and only newer events are returned
+    public List<PipedriveDealFollowerEvent> getDealFollowersFlow(final Long id, final LocalDateTime afterTime) {
         List<PipedriveDealFollowerEvent> followers = new ArrayList<>();
 
         boolean moreItemInCollection = true;
@@ -127,7 +131,13 @@ public class PipedriveClient {
                     })
                     .block();
 
-            followers.addAll(response.getData());
+            for (PipedriveDealFollowerEvent followerEvent : response.getData()) {
+                if (!isAfter(followerEvent.getData(), afterTime)) {
+                    return followers;
+                }
+
+                followers.add(followerEvent);
+            }
 
             moreItemInCollection = response.getAdditionalData().getPagination().getMoreItemsInCollection();
             if (moreItemInCollection) {
@@ -145,6 +155,7 @@ public class PipedriveClient {
                         .build()
                         .toUri()
                 )
+                .attributes(HttpResponseCacheExchangeFilterFunction.cacheFor(SecurityUtils.getCurrentUser()))
                 .retrieve()
                 .bodyToMono(new ParameterizedTypeReference<PipedriveResponse<PipedriveUser>>() { })
                 .map(PipedriveResponse<PipedriveUser>::getData)
@@ -213,6 +224,14 @@ public class PipedriveClient {
                 .block();
     }
 
+    private boolean isAfter(final PipedriveDealFollowerEvent.Data data, final LocalDateTime afterTime) {
+        if (afterTime == null) {
+            return true;
+        }
+
+        return data.getLogDateTime().isAfter(afterTime);
+    }
+
     private String getBaseUrl() {
         String clientUrl = SecurityUtils.getCurrentClient().getUrl();
 
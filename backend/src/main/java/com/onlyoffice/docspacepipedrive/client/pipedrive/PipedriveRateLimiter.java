@@ -0,0 +1,165 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.pipedrive;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+// Pipedrive limits requests per company, the budget of each client is tracked from X-RateLimit-* headers
+// and calls are held back before it runs out instead of failing with 429
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PipedriveRateLimiter {
+    private static final String RATE_LIMIT_LIMIT_HEADER = "X-RateLimit-Limit";
+    private static final String RATE_LIMIT_REMAINING_HEADER = "X-RateLimit-Remaining";
+    private static final String RATE_LIMIT_RESET_HEADER = "X-RateLimit-Reset";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.pipedrive-rate-limit.background-reserve}")
+    private double backgroundReserve;
+    @Value("${app.pipedrive-rate-limit.max-delay}")
+    private Duration maxDelay;
+
+    private final Map<Long, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public Mono<ClientResponse> schedule(final Long clientId, final boolean interactive,
+                                         final Mono<ClientResponse> exchange) {
+        Bucket bucket = buckets.computeIfAbsent(clientId, key -> new Bucket());
+
+        return Mono.defer(() -> acquire(clientId, bucket, interactive, Instant.now().plus(maxDelay)))
+                .then(exchange)
+                .doOnNext(bucket::update);
+    }
+
+    private Mono<Void> acquire(final Long clientId, final Bucket bucket, final boolean interactive,
+                               final Instant deadline) {
+        Duration delay = bucket.tryAcquire(interactive ? 0 : backgroundReserve);
+        if (delay.isZero() || delay.isNegative()) {
+            return Mono.empty();
+        }
+
+        Duration timeLeft = Duration.between(Instant.now(), deadline);
+        if (timeLeft.isZero() || timeLeft.isNegative()) {
+            // Waited long enough, the call goes out and Pipedrive decides
+            log.debug(MessageFormat.format(
+                    "Pipedrive rate limit of client with ID ({0}) is still exhausted, sending request anyway",
+                    clientId.toString()
+            ));
+
+            return Mono.empty();
+        }
+
+        meterRegistry.counter(
+                "pipedrive.ratelimit.delayed",
+                "priority", interactive ? "interactive" : "background"
+        ).increment();
+
+        return Mono.delay(delay.compareTo(timeLeft) < 0 ? delay : timeLeft)
+                .then(Mono.defer(() -> acquire(clientId, bucket, interactive, deadline)));
+    }
+
+    private static final class Bucket {
+        private Integer limit;
+        private int remaining;
+        private Instant resetAt = Instant.MIN;
+        private Duration window = Duration.ZERO;
+
+        // Background calls leave a share of the limit untouched, so interactive calls keep getting through
+        synchronized Duration tryAcquire(final double reserve) {
+            if (limit == null) {
+                return Duration.ZERO;
+            }
+
+            Instant now = Instant.now();
+            if (!now.isBefore(resetAt)) {
+                remaining = limit;
+                resetAt = now.plus(window);
+            }
+
+            if (remaining > Math.ceil(limit * reserve)) {
+                remaining--;
+                return Duration.ZERO;
+            }
+
+            return Duration.between(now, resetAt);
+        }
+
+        synchronized void update(final ClientResponse clientResponse) {
+            HttpHeaders headers = clientResponse.headers().asHttpHeaders();
+
+            Integer headerLimit = parseInteger(headers.getFirst(RATE_LIMIT_LIMIT_HEADER));
+            Integer headerRemaining = parseInteger(headers.getFirst(RATE_LIMIT_REMAINING_HEADER));
+            Integer headerReset = parseInteger(headers.getFirst(RATE_LIMIT_RESET_HEADER));
+
+            if (headerLimit != null) {
+                limit = headerLimit;
+            }
+
+            if (headerReset != null) {
+                window = Duration.ofSeconds(Math.max(headerReset, 1));
+                resetAt = Instant.now().plus(window);
+            }
+
+            if (headerRemaining != null) {
+                remaining = headerRemaining;
+            }
+
+            if (clientResponse.statusCode().equals(HttpStatus.TOO_MANY_REQUESTS)) {
+                remaining = 0;
+
+                Integer retryAfter = parseInteger(headers.getFirst(HttpHeaders.RETRY_AFTER));
+                if (retryAfter != null) {
+                    resetAt = Instant.now().plusSeconds(retryAfter);
+                }
+
+                if (limit == null) {
+                    limit = 1;
+                }
+            }
+        }
+
+        private Integer parseInteger(final String value) {
+            if (value == null) {
+                return null;
+            }
+
+            try {
+                return Integer.valueOf(value.trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -18,20 +18,43 @@
 
 package com.onlyoffice.docspacepipedrive.client.pipedrive.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
 
 @Data
 @JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
 public class PipedriveDeal {
+    // Pipedrive returns update and log times in UTC as "yyyy-MM-dd HH:mm:ss"
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private Long id;
     private String title;
     private Integer visibleTo;
     private Integer followersCount;
+    // Owner, an ID in webhook payloads and an object in deal API responses
+    private JsonNode userId;
     private String updateTime;
 
+    @JsonIgnore
+    public LocalDateTime getUpdateDateTime() {
+        return parseDateTime(updateTime);
+    }
+
+    public static LocalDateTime parseDateTime(final String dateTime) {
+        if (dateTime == null) {
+            return null;
+        }
+
+        return LocalDateTime.parse(dateTime, DATE_TIME_FORMATTER);
+    }
+
     public enum VisibleTo {
         EVERYONE(3),
         EVERYONE_ADVANCED_PERMISSIONS(7);
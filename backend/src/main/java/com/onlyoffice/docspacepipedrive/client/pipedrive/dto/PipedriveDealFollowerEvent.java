@@ -18,10 +18,13 @@
 
 package com.onlyoffice.docspacepipedrive.client.pipedrive.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 import lombok.Data;
 
+import java.time.LocalDateTime;
+
 
 @Data
 @JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
@@ -36,5 +39,10 @@ public class PipedriveDealFollowerEvent {
         private String action;
         private Long followerUserId;
         private String logTime;
+
+        @JsonIgnore
+        public LocalDateTime getLogDateTime() {
+            return PipedriveDeal.parseDateTime(logTime);
+        }
     }
 }
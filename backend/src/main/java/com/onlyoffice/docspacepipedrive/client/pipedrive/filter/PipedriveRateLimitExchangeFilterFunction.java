@@ -0,0 +1,53 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.pipedrive.filter;
+
+import com.onlyoffice.docspacepipedrive.client.pipedrive.PipedriveRateLimiter;
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+
+public class PipedriveRateLimitExchangeFilterFunction implements ExchangeFilterFunction {
+    private final PipedriveRateLimiter pipedriveRateLimiter;
+
+    public PipedriveRateLimitExchangeFilterFunction(final PipedriveRateLimiter pipedriveRateLimiter) {
+        this.pipedriveRateLimiter = pipedriveRateLimiter;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(final ClientRequest request, final ExchangeFunction next) {
+        Client client = SecurityUtils.getCurrentClient();
+
+        if (client == null) {
+            return next.exchange(request);
+        }
+
+        // Calls made while serving an HTTP request (UserController, RoomController, ...) are interactive,
+        // calls from workers and deal event lanes are background work
+        boolean interactive = RequestContextHolder.getRequestAttributes() != null;
+
+        return pipedriveRateLimiter.schedule(client.getId(), interactive, next.exchange(request));
+    }
+}
@@ -18,35 +18,139 @@
 
 package com.onlyoffice.docspacepipedrive.configuration;
 
+import com.onlyoffice.docspacepipedrive.cache.HttpResponseCache;
+import com.onlyoffice.docspacepipedrive.client.HttpClientFactory;
+import com.onlyoffice.docspacepipedrive.client.docspace.DocspacePortalGuard;
+import com.onlyoffice.docspacepipedrive.client.docspace.DocspaceTokenManager;
 import com.onlyoffice.docspacepipedrive.client.docspace.filter.DocspaceAuthorizationExchangeFilterFunction;
-import com.onlyoffice.docspacepipedrive.service.DocspaceAccountService;
+import com.onlyoffice.docspacepipedrive.client.docspace.filter.DocspacePortalGuardExchangeFilterFunction;
+import com.onlyoffice.docspacepipedrive.client.filter.HttpResponseCacheExchangeFilterFunction;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.PipedriveRateLimiter;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.filter.PipedriveRateLimitExchangeFilterFunction;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ReactorNettyClientRequestFactory;
+import org.springframework.http.converter.FormHttpMessageConverter;
+import org.springframework.security.oauth2.client.AuthorizedClientServiceOAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.endpoint.DefaultAuthorizationCodeTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.DefaultRefreshTokenTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AuthorizationCodeGrantRequest;
+import org.springframework.security.oauth2.client.endpoint.OAuth2RefreshTokenGrantRequest;
+import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.security.oauth2.client.web.reactive.function.client.ServletOAuth2AuthorizedClientExchangeFilterFunction;
+import org.springframework.security.oauth2.core.http.converter.OAuth2AccessTokenResponseHttpMessageConverter;
+import org.springframework.web.client.RestTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.util.List;
+
 
 @Configuration
 public class ClientConfiguration {
     @Bean
-    WebClient docspaceWebClient(final DocspaceAccountService docspaceAccountService) {
+    OAuth2AuthorizedClientManager authorizedClientManager(
+            final ClientRegistrationRepository clientRegistrationRepository,
+            final OAuth2AuthorizedClientService authorizedClientService,
+            final OAuth2AccessTokenResponseClient<OAuth2RefreshTokenGrantRequest> refreshTokenTokenResponseClient) {
+        // Not bound to HttpServletRequest, so Pipedrive can also be called from webhook delivery workers
+        OAuth2AuthorizedClientProvider authorizedClientProvider = OAuth2AuthorizedClientProviderBuilder.builder()
+                .authorizationCode()
+                .refreshToken(refreshTokenGrantBuilder -> {
+                    refreshTokenGrantBuilder.accessTokenResponseClient(refreshTokenTokenResponseClient);
+                })
+                .build();
+
+        AuthorizedClientServiceOAuth2AuthorizedClientManager authorizedClientManager =
+                new AuthorizedClientServiceOAuth2AuthorizedClientManager(
+                        clientRegistrationRepository,
+                        authorizedClientService
+                );
+        authorizedClientManager.setAuthorizedClientProvider(authorizedClientProvider);
+
+        return authorizedClientManager;
+    }
+
+    @Bean
+    OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest> authorizationCodeTokenResponseClient(
+            final RestTemplate oauthRestTemplate) {
+        DefaultAuthorizationCodeTokenResponseClient authorizationCodeTokenResponseClient =
+                new DefaultAuthorizationCodeTokenResponseClient();
+        authorizationCodeTokenResponseClient.setRestOperations(oauthRestTemplate);
+
+        return authorizationCodeTokenResponseClient;
+    }
+
+    @Bean
+    OAuth2AccessTokenResponseClient<OAuth2RefreshTokenGrantRequest> refreshTokenTokenResponseClient(
+            final RestTemplate oauthRestTemplate) {
+        DefaultRefreshTokenTokenResponseClient refreshTokenTokenResponseClient =
+                new DefaultRefreshTokenTokenResponseClient();
+        refreshTokenTokenResponseClient.setRestOperations(oauthRestTemplate);
+
+        return refreshTokenTokenResponseClient;
+    }
+
+    @Bean
+    RestTemplate oauthRestTemplate(final HttpClientFactory httpClientFactory) {
+        // Same converters and error handler as the Spring Security defaults, on the pooled OAuth HTTP client
+        RestTemplate restTemplate = new RestTemplate(List.of(
+                new FormHttpMessageConverter(),
+                new OAuth2AccessTokenResponseHttpMessageConverter()
+        ));
+        restTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+        restTemplate.setRequestFactory(
+                new ReactorNettyClientRequestFactory(httpClientFactory.createHttpClient("oauth"))
+        );
+
+        return restTemplate;
+    }
+
+    @Bean
+    WebClient docspaceAuthenticationWebClient(final HttpClientFactory httpClientFactory,
+                                              final DocspacePortalGuard docspacePortalGuard) {
+        // Unauthenticated DocSpace calls (login), sharing the DocSpace connection pool
+        return httpClientFactory.createWebClientBuilder("docspace")
+                .filter(httpClientFactory.createRetryExchangeFilterFunction("docspace"))
+                .filter(new DocspacePortalGuardExchangeFilterFunction(docspacePortalGuard))
+                .build();
+    }
+
+    @Bean
+    WebClient docspaceWebClient(final DocspaceTokenManager docspaceTokenManager,
+                                final DocspacePortalGuard docspacePortalGuard,
+                                final HttpResponseCache httpResponseCache,
+                                final HttpClientFactory httpClientFactory) {
         DocspaceAuthorizationExchangeFilterFunction docspaceAuthorizationExchangeFilterFunction =
-                new DocspaceAuthorizationExchangeFilterFunction(docspaceAccountService);
+                new DocspaceAuthorizationExchangeFilterFunction(docspaceTokenManager);
 
-        return WebClient.builder()
+        return httpClientFactory.createWebClientBuilder("docspace")
                 .filter(docspaceAuthorizationExchangeFilterFunction)
+                .filter(new HttpResponseCacheExchangeFilterFunction(httpResponseCache))
+                .filter(httpClientFactory.createRetryExchangeFilterFunction("docspace"))
+                .filter(new DocspacePortalGuardExchangeFilterFunction(docspacePortalGuard))
                 .build();
     }
 
     @Bean
-    WebClient pipedriveWebClient(final OAuth2AuthorizedClientManager authorizedClientManager) {
+    WebClient pipedriveWebClient(final OAuth2AuthorizedClientManager authorizedClientManager,
+                                 final HttpResponseCache httpResponseCache,
+                                 final PipedriveRateLimiter pipedriveRateLimiter,
+                                 final HttpClientFactory httpClientFactory) {
         ServletOAuth2AuthorizedClientExchangeFilterFunction servletOAuth2AuthorizedClientExchangeFilterFunction =
                 new ServletOAuth2AuthorizedClientExchangeFilterFunction(authorizedClientManager);
         servletOAuth2AuthorizedClientExchangeFilterFunction.setDefaultClientRegistrationId("pipedrive");
         servletOAuth2AuthorizedClientExchangeFilterFunction.setDefaultOAuth2AuthorizedClient(true);
 
-        return WebClient.builder()
+        return httpClientFactory.createWebClientBuilder("pipedrive")
+                .filter(new HttpResponseCacheExchangeFilterFunction(httpResponseCache))
+                .filter(httpClientFactory.createRetryExchangeFilterFunction("pipedrive"))
+                .filter(new PipedriveRateLimitExchangeFilterFunction(pipedriveRateLimiter))
                 .filter(servletOAuth2AuthorizedClientExchangeFilterFunction)
                 .build();
     }
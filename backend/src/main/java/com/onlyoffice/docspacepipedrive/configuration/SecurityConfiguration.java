@@ -38,6 +38,8 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.encrypt.Encryptors;
 import org.springframework.security.crypto.encrypt.TextEncryptor;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AuthorizationCodeGrantRequest;
 import org.springframework.security.oauth2.client.web.OAuth2AuthorizationCodeGrantFilter;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
@@ -76,7 +78,8 @@ public class SecurityConfiguration {
     public SecurityFilterChain securityFilterChain(final HttpSecurity http,
                                                    final BasicAuthenticationFilter clientRegistrationAuthenticationFilter,
                                                    final BearerTokenAuthenticationFilter jwtAuthenticationFilter,
-                                                   final BasicAuthenticationFilter webhookAuthenticationFilter) throws Exception {
+                                                   final BasicAuthenticationFilter webhookAuthenticationFilter,
+                                                   final OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest> authorizationCodeTokenResponseClient) throws Exception {
         http
                 .authorizeHttpRequests(auth -> {
                     auth
@@ -86,6 +89,9 @@ public class SecurityConfiguration {
                             .anyRequest().permitAll();
                 })
                 .oauth2Client(httpSecurityOAuth2ClientConfigurer -> {
+                    httpSecurityOAuth2ClientConfigurer.authorizationCodeGrant(authorizationCodeGrantConfigurer -> {
+                        authorizationCodeGrantConfigurer.accessTokenResponseClient(authorizationCodeTokenResponseClient);
+                    });
                     httpSecurityOAuth2ClientConfigurer.init(http);
                 })
                 .formLogin(AbstractHttpConfigurer::disable)
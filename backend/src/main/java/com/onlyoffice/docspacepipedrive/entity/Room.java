@@ -18,7 +18,11 @@
 
 package com.onlyoffice.docspacepipedrive.entity;
 
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -32,6 +36,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
 
 @Builder
 @Data
@@ -54,4 +62,11 @@ public class Room {
     @JoinColumn(name = "client_id")
     @ToString.Exclude
     private Client client;
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "room_followers", joinColumns = @JoinColumn(name = "room_id"))
+    @Column(name = "follower_user_id")
+    @ToString.Exclude
+    @Builder.Default
+    private Set<Long> followers = new HashSet<>();
+    private Instant followersSyncedAt;
 }
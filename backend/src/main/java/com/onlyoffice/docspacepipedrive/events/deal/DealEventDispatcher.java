@@ -0,0 +1,119 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.events.deal;
+
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+// Runs deal event handling off request threads, events of one deal are handled in order on the same lane.
+// A lane has a single thread, so handlers of the same deal never run at the same time. Shared state touched
+// on the way (retry budget, rate limiter) still guards itself, briefly pinning a virtual thread while it does
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DealEventDispatcher {
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.deal-events.lanes}")
+    private int lanesCount;
+    @Value("${app.deal-events.queue-depth}")
+    private int queueDepth;
+    @Value("${spring.threads.virtual.enabled}")
+    private boolean virtualThreadsEnabled;
+
+    private List<ThreadPoolExecutor> lanes;
+
+    @PostConstruct
+    public void init() {
+        lanes = new ArrayList<>(lanesCount);
+
+        for (int i = 0; i < lanesCount; i++) {
+            ThreadFactory threadFactory = new CustomizableThreadFactory("deal-events-" + i + "-");
+            if (virtualThreadsEnabled) {
+                threadFactory = Thread.ofVirtual().name("deal-events-" + i + "-", 1).factory();
+            }
+
+            ThreadPoolExecutor lane = new ThreadPoolExecutor(
+                    1,
+                    1,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueDepth),
+                    threadFactory
+            );
+
+            Gauge.builder("deal.events.lane.queue.depth", lane, executor -> executor.getQueue().size())
+                    .tag("lane", String.valueOf(i))
+                    .register(meterRegistry);
+
+            lanes.add(lane);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        lanes.forEach(ThreadPoolExecutor::shutdown);
+    }
+
+    // A full lane queue is reported through the returned future, so callers handle it as a failed event
+    // (the webhook worker reschedules the delivery) instead of catching an exception thrown at dispatch
+    public CompletableFuture<Void> dispatch(final User user, final Long dealId, final Runnable task) {
+        int laneIndex = Math.floorMod(Objects.hash(user.getClient().getId(), dealId), lanes.size());
+
+        try {
+            return CompletableFuture.runAsync(() -> {
+                SecurityUtils.runAs(new SecurityUtils.RunAsWork<Void>() {
+                    public Void doWork() {
+                        task.run();
+                        return null;
+                    }
+                }, user);
+            }, lanes.get(laneIndex));
+        } catch (RejectedExecutionException e) {
+            log.warn(MessageFormat.format(
+                    "Deal event lane ({0}) is full, event for deal with ID ({1}) is rejected",
+                    String.valueOf(laneIndex),
+                    String.valueOf(dealId)
+            ));
+
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
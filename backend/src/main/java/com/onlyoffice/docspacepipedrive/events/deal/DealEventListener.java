@@ -18,11 +18,11 @@
 
 package com.onlyoffice.docspacepipedrive.events.deal;
 
+import com.onlyoffice.docspacepipedrive.cache.PipedriveAdvancedPermissionsCache;
 import com.onlyoffice.docspacepipedrive.client.pipedrive.PipedriveClient;
 import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDeal;
 import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDealFollower;
 import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDealFollowerEvent;
-import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveUserSettings;
 import com.onlyoffice.docspacepipedrive.entity.Client;
 import com.onlyoffice.docspacepipedrive.entity.DocspaceAccount;
 import com.onlyoffice.docspacepipedrive.entity.Room;
@@ -41,8 +41,14 @@ import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import java.text.MessageFormat;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 
 @Component
@@ -52,6 +58,7 @@ public class DealEventListener {
     private static final String INTEGRATION_TAG_NAME = "Pipedrive Integration";
     private final DocspaceActionManager docspaceActionManager;
     private final PipedriveClient pipedriveClient;
+    private final PipedriveAdvancedPermissionsCache pipedriveAdvancedPermissionsCache;
     private final UserService userService;
     private final RoomService roomService;
 
@@ -62,10 +69,8 @@ public class DealEventListener {
 
         Client currentClient = SecurityUtils.getCurrentClient();
 
-        PipedriveUserSettings pipedriveUserSettings = pipedriveClient.getUserSettings();
-
         int visibleToEveryone = PipedriveDeal.VisibleTo.EVERYONE.integer();
-        if (pipedriveUserSettings.getAdvancedPermissions()) {
+        if (pipedriveAdvancedPermissionsCache.isEnabled()) {
             visibleToEveryone = PipedriveDeal.VisibleTo.EVERYONE_ADVANCED_PERMISSIONS.integer();
         }
 
@@ -94,27 +99,23 @@ public class DealEventListener {
         // Invite all deal followers to room
         List<PipedriveDealFollower> dealFollowers = pipedriveClient.getDealFollowers(pipedriveDeal.getId());
 
-        List<User> users = new ArrayList<>();
-        for (PipedriveDealFollower dealFollower : dealFollowers) {
-            try {
-                users.add(
-                        userService.findByClientIdAndUserId(
-                                currentClient.getId(),
-                                dealFollower.getUserId()
-                        )
-                );
-            } catch (UserNotFoundException e) {
-                // Do nothing if the UserNotFoundException
-            }
-        }
-
-        List<DocspaceAccount> docspaceAccounts = users.stream()
-                .filter(user -> user.getDocspaceAccount() != null)
-                .map(user -> user.getDocspaceAccount())
-                .toList();
+        List<DocspaceAccount> docspaceAccounts = findDocspaceAccounts(
+                currentClient.getId(),
+                dealFollowers.stream()
+                        .map(dealFollower -> dealFollower.getUserId())
+                        .toList()
+        );
 
         docspaceActionManager.inviteListDocspaceAccountsToRoom(roomId, docspaceAccounts);
 
+        roomService.saveFollowers(
+                currentClient.getId(),
+                pipedriveDeal.getId(),
+                dealFollowers.stream()
+                        .map(dealFollower -> dealFollower.getUserId())
+                        .collect(Collectors.toSet())
+        );
+
         docspaceActionManager.addTagToRoom(roomId, INTEGRATION_TAG_NAME);
     }
 
@@ -168,8 +169,9 @@ public class DealEventListener {
     }
 
     @EventListener
-    public void listen(final AddFollowersToPipedriveDealEvent event) {
+    public void listen(final ReconcileFollowersForPipedriveDealEvent event) {
         PipedriveDeal pipedriveDeal = event.getPipedriveDeal();
+        PipedriveDeal previousPipedriveDeal = event.getPreviousPipedriveDeal();
         Client currentClient = SecurityUtils.getCurrentClient();
 
         Room room;
@@ -180,81 +182,91 @@ public class DealEventListener {
             return;
         }
 
-        List<PipedriveDealFollowerEvent> dealFollowerEvents = pipedriveClient.getDealFollowersFlow(
-                pipedriveDeal.getId()
-        );
-
-        List<Long> userIdsAddedFollowers = findUserIdsInDealFollowersEvents(
-                dealFollowerEvents,
-                "added",
-                pipedriveDeal.getUpdateTime()
-        );
-
-        List<User> addedFollowers = new ArrayList<>();
-        for (Long userId : userIdsAddedFollowers) {
-            try {
-                addedFollowers.add(userService.findByClientIdAndUserId(currentClient.getId(), userId));
-            } catch (UserNotFoundException e) {
-                // Do nothing if the UserNotFoundException
-            }
-        }
-
-        List<DocspaceAccount> docspaceAccounts = addedFollowers.stream()
-                .filter(user -> user.getDocspaceAccount() != null)
-                .map(user -> user.getDocspaceAccount())
-                .toList();
-
-        docspaceActionManager.inviteListDocspaceAccountsToRoom(room.getRoomId(), docspaceAccounts);
-    }
-
-    @EventListener
-    public void listen(final RemoveFollowersFromPipedriveDealEvent event) {
-        PipedriveDeal pipedriveDeal = event.getPipedriveDeal();
-        Client currentClient = SecurityUtils.getCurrentClient();
-
-        Room room;
-        try {
-            room = roomService.findByClientIdAndDealId(currentClient.getId(), pipedriveDeal.getId());
-        } catch (RoomNotFoundException e) {
-            // Ignore it if there is no DocSpace room for the Pipedrive deal
-            return;
+        Set<Long> dealFollowers = pipedriveClient.getDealFollowers(pipedriveDeal.getId()).stream()
+                .map(dealFollower -> dealFollower.getUserId())
+                .collect(Collectors.toSet());
+
+        List<Long> userIdsAddedFollowers = new ArrayList<>();
+        List<Long> userIdsRemovedFollowers = new ArrayList<>();
+        if (room.getFollowersSyncedAt() != null) {
+            // Diff against the stored snapshot, so the cost does not depend on the deal history
+            Set<Long> snapshotFollowers = room.getFollowers();
+
+            dealFollowers.stream()
+                    .filter(userId -> !snapshotFollowers.contains(userId))
+                    .forEach(userIdsAddedFollowers::add);
+
+            snapshotFollowers.stream()
+                    .filter(userId -> !dealFollowers.contains(userId))
+                    .forEach(userIdsRemovedFollowers::add);
+        } else {
+            // Rooms created before snapshots were stored fall back to the deal flow once,
+            // paging stops at events not newer than the previous deal update, which the diff ignores anyway
+            List<PipedriveDealFollowerEvent> dealFollowerEvents = pipedriveClient.getDealFollowersFlow(
+                    pipedriveDeal.getId(),
+                    previousPipedriveDeal.getUpdateDateTime()
+            );
+
+            Map<Long, String> lastFollowerActions = findLastFollowerActionsInDealFollowersEvents(
+                    dealFollowerEvents,
+                    previousPipedriveDeal.getUpdateDateTime(),
+                    pipedriveDeal.getUpdateDateTime()
+            );
+
+            lastFollowerActions.forEach((userId, action) -> {
+                if (action.equals("added")) {
+                    userIdsAddedFollowers.add(userId);
+                }
+
+                if (action.equals("removed")) {
+                    userIdsRemovedFollowers.add(userId);
+                }
+            });
         }
 
-        List<PipedriveDealFollowerEvent> dealFollowerEvents = pipedriveClient.getDealFollowersFlow(
-                pipedriveDeal.getId()
+        docspaceActionManager.inviteListDocspaceAccountsToRoom(
+                room.getRoomId(),
+                findDocspaceAccounts(currentClient.getId(), userIdsAddedFollowers)
         );
 
-        List<Long> userIdsRemovedFollowers = findUserIdsInDealFollowersEvents(
-                dealFollowerEvents,
-                "removed",
-                pipedriveDeal.getUpdateTime()
+        docspaceActionManager.removeListDocspaceAccountsFromRoom(
+                room.getRoomId(),
+                findDocspaceAccounts(currentClient.getId(), userIdsRemovedFollowers)
         );
 
-        List<User> removedFollowers = new ArrayList<>();
-        for (Long userId : userIdsRemovedFollowers) {
+        roomService.saveFollowers(currentClient.getId(), pipedriveDeal.getId(), dealFollowers);
+    }
+
+    private List<DocspaceAccount> findDocspaceAccounts(final Long clientId, final List<Long> userIds) {
+        List<User> users = new ArrayList<>();
+        for (Long userId : userIds) {
             try {
-                removedFollowers.add(userService.findByClientIdAndUserId(currentClient.getId(), userId));
+                users.add(userService.findByClientIdAndUserId(clientId, userId));
             } catch (UserNotFoundException e) {
-                // Do nothing if UserNotFoundException
+                // Do nothing if the UserNotFoundException
             }
         }
 
-        List<DocspaceAccount> docspaceAccounts = removedFollowers.stream()
+        return users.stream()
                 .filter(user -> user.getDocspaceAccount() != null)
                 .map(user -> user.getDocspaceAccount())
                 .toList();
-
-        docspaceActionManager.removeListDocspaceAccountsFromRoom(room.getRoomId(), docspaceAccounts);
     }
 
-    private List<Long> findUserIdsInDealFollowersEvents(final List<PipedriveDealFollowerEvent> dealFollowerEvents,
-                                                        final String action, final String time) {
-        return dealFollowerEvents.stream()
-                .filter(followerEvent -> {
-                    return followerEvent.getData().getAction().equals(action)
-                            && followerEvent.getData().getLogTime().equals(time);
-                })
-                .map(follower -> follower.getData().getFollowerUserId())
-                .toList();
+    private Map<Long, String> findLastFollowerActionsInDealFollowersEvents(
+            final List<PipedriveDealFollowerEvent> dealFollowerEvents, final LocalDateTime fromTime,
+            final LocalDateTime toTime) {
+        Map<Long, String> lastFollowerActions = new LinkedHashMap<>();
+
+        dealFollowerEvents.stream()
+                .map(followerEvent -> followerEvent.getData())
+                .filter(data -> fromTime == null || data.getLogDateTime().isAfter(fromTime))
+                .filter(data -> toTime == null || !data.getLogDateTime().isAfter(toTime))
+                .sorted(Comparator.comparing(PipedriveDealFollowerEvent.Data::getLogDateTime)
+                        .thenComparing(PipedriveDealFollowerEvent.Data::getId)
+                )
+                .forEach(data -> lastFollowerActions.put(data.getFollowerUserId(), data.getAction()));
+
+        return lastFollowerActions;
     }
 }
@@ -24,11 +24,14 @@ import org.springframework.context.ApplicationEvent;
 
 
 @Getter
-public class AddFollowersToPipedriveDealEvent extends ApplicationEvent {
+public class ReconcileFollowersForPipedriveDealEvent extends ApplicationEvent {
+    private final PipedriveDeal previousPipedriveDeal;
     private final PipedriveDeal pipedriveDeal;
 
-    public AddFollowersToPipedriveDealEvent(final Object source, final PipedriveDeal pipedriveDeal) {
+    public ReconcileFollowersForPipedriveDealEvent(final Object source, final PipedriveDeal previousPipedriveDeal,
+                                                   final PipedriveDeal pipedriveDeal) {
         super(source);
+        this.previousPipedriveDeal = previousPipedriveDeal;
         this.pipedriveDeal = pipedriveDeal;
     }
 }
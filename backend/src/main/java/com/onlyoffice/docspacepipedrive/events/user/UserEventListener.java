@@ -23,6 +23,7 @@ import com.onlyoffice.docspacepipedrive.entity.User;
 import com.onlyoffice.docspacepipedrive.manager.DocspaceActionManager;
 import com.onlyoffice.docspacepipedrive.manager.PipedriveActionManager;
 import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import com.onlyoffice.docspacepipedrive.worker.SharedGroupMembersWorker;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
@@ -35,6 +36,7 @@ import org.springframework.stereotype.Component;
 public class UserEventListener {
     private final DocspaceActionManager docspaceActionManager;
     private final PipedriveActionManager pipedriveActionManager;
+    private final SharedGroupMembersWorker sharedGroupMembersWorker;
 
     @EventListener
     public void listen(final DocspaceLoginUserEvent event) {
@@ -45,12 +47,7 @@ public class UserEventListener {
             docspaceActionManager.initSharedGroup();
             pipedriveActionManager.initWebhooks();
         } else {
-            SecurityUtils.runAs(new SecurityUtils.RunAsWork<Void>() {
-                public Void doWork() {
-                    docspaceActionManager.inviteDocspaceAccountToSharedGroup(event.getDocspaceAccount().getUuid());
-                    return null;
-                }
-            }, currentClient.getSystemUser());
+            sharedGroupMembersWorker.addMember(currentClient.getId(), event.getDocspaceAccount().getUuid());
         }
     }
 
@@ -73,14 +70,7 @@ public class UserEventListener {
             }
         } else {
             try {
-                SecurityUtils.runAs(new SecurityUtils.RunAsWork<Void>() {
-                    public Void doWork() {
-                        docspaceActionManager.removeDocspaceAccountFromSharedGroup(
-                                event.getDocspaceAccount().getUuid()
-                        );
-                        return null;
-                    }
-                }, currentClient.getSystemUser());
+                sharedGroupMembersWorker.removeMember(currentClient.getId(), event.getDocspaceAccount().getUuid());
             } catch (Exception e) {
                 log.warn(e.getMessage(), e);
             }
@@ -16,19 +16,20 @@
  *
  */
 
-package com.onlyoffice.docspacepipedrive.events.deal;
+package com.onlyoffice.docspacepipedrive.events.webhook;
 
-import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDeal;
 import lombok.Getter;
 import org.springframework.context.ApplicationEvent;
 
+import java.util.UUID;
+
 
 @Getter
-public class RemoveFollowersFromPipedriveDealEvent extends ApplicationEvent {
-    private final PipedriveDeal pipedriveDeal;
+public class WebhookDeletedEvent extends ApplicationEvent {
+    private final UUID webhookId;
 
-    public RemoveFollowersFromPipedriveDealEvent(final Object source, final PipedriveDeal pipedriveDeal) {
+    public WebhookDeletedEvent(final Object source, final UUID webhookId) {
         super(source);
-        this.pipedriveDeal = pipedriveDeal;
+        this.webhookId = webhookId;
     }
 }
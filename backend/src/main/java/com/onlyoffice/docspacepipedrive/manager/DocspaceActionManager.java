@@ -18,6 +18,8 @@
 
 package com.onlyoffice.docspacepipedrive.manager;
 
+import com.onlyoffice.docspacepipedrive.cache.DocspaceTagsCache;
+import com.onlyoffice.docspacepipedrive.cache.DocspaceUnpaidUsersCache;
 import com.onlyoffice.docspacepipedrive.client.docspace.DocspaceClient;
 import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceAccess;
 import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceGroup;
@@ -42,6 +44,7 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 import java.text.MessageFormat;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 
@@ -50,6 +53,8 @@ import java.util.UUID;
 @Slf4j
 public class DocspaceActionManager {
     private final DocspaceClient docspaceClient;
+    private final DocspaceUnpaidUsersCache docspaceUnpaidUsersCache;
+    private final DocspaceTagsCache docspaceTagsCache;
     private final SettingsService settingsService;
     private final UserService userService;
 
@@ -108,7 +113,7 @@ public class DocspaceActionManager {
         }, systemUser);
     }
 
-    public void inviteDocspaceAccountToSharedGroup(final UUID docspaceAccountId) {
+    public void updateSharedGroupMembers(final List<UUID> membersToAdd, final List<UUID> membersToRemove) {
         Client currentClient = SecurityUtils.getCurrentClient();
 
         try {
@@ -116,25 +121,23 @@ public class DocspaceActionManager {
                     currentClient.getSettings().getSharedGroupId(),
                     null,
                     null,
-                    Collections.singletonList(docspaceAccountId),
-                    null
+                    membersToAdd,
+                    membersToRemove
             );
-        } catch (WebClientResponseException | SharedGroupIdNotFoundException e) {
-            if (e instanceof SharedGroupIdNotFoundException) {
-                initSharedGroup();
-                return;
+        } catch (SharedGroupIdNotFoundException e) {
+            initSharedGroup();
+        } catch (WebClientResponseException e) {
+            if (!e.getStatusCode().equals(HttpStatus.NOT_FOUND)) {
+                throw e;
             }
 
-            if (e instanceof WebClientResponseException
-                    && ((WebClientResponseException) e).getStatusCode().equals(HttpStatus.NOT_FOUND)) {
-                Settings savedSetting = settingsService.saveSharedGroup(
-                        currentClient.getId(),
-                        null
-                );
-                currentClient.setSettings(savedSetting);
+            Settings savedSetting = settingsService.saveSharedGroup(
+                    currentClient.getId(),
+                    null
+            );
+            currentClient.setSettings(savedSetting);
 
-                initSharedGroup();
-            }
+            initSharedGroup();
         }
     }
 
@@ -196,12 +199,7 @@ public class DocspaceActionManager {
     }
 
     public void inviteListDocspaceAccountsToRoom(final Long roomId, final List<DocspaceAccount> docspaceAccounts) {
-        List<UUID> docspaceUnpaidUsers = docspaceClient.findUsers(2) //employeeType 2 = User
-                .stream()
-                .map(docspaceUser -> {
-                    return docspaceUser.getId();
-                })
-                .toList();
+        Set<UUID> docspaceUnpaidUsers = docspaceUnpaidUsersCache.getUnpaidUsers();
 
         List<DocspaceRoomInvitation> invitations = docspaceAccounts.stream()
                 .map(docspaceAccount -> {
@@ -247,13 +245,21 @@ public class DocspaceActionManager {
     }
 
     public void addTagToRoom(final Long roomId, final String tagName) {
-        List<String> tagNames = docspaceClient.getTags();
+        docspaceTagsCache.ensureTag(tagName);
 
-        if (!tagNames.contains(tagName)) {
-            docspaceClient.createTag(tagName);
-        }
+        try {
+            docspaceClient.addTagsToRoom(roomId, Collections.singletonList(tagName));
+        } catch (WebClientResponseException e) {
+            if (!e.getStatusCode().is4xxClientError()) {
+                throw e;
+            }
+
+            // The tag could be removed in DocSpace after it was cached, refresh known tags and try again
+            docspaceTagsCache.invalidate();
+            docspaceTagsCache.ensureTag(tagName);
 
-        docspaceClient.addTagsToRoom(roomId, Collections.singletonList(tagName));
+            docspaceClient.addTagsToRoom(roomId, Collections.singletonList(tagName));
+        }
     }
 
 }
@@ -0,0 +1,136 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.manager;
+
+import com.onlyoffice.docspacepipedrive.cache.PipedriveAdvancedPermissionsCache;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDeal;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveUser;
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.events.deal.AddVisibleEveryoneForPipedriveDealEvent;
+import com.onlyoffice.docspacepipedrive.events.deal.ReconcileFollowersForPipedriveDealEvent;
+import com.onlyoffice.docspacepipedrive.events.deal.RemoveVisibleEveryoneForPipedriveDealEvent;
+import com.onlyoffice.docspacepipedrive.exceptions.RoomNotFoundException;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import com.onlyoffice.docspacepipedrive.service.ClientService;
+import com.onlyoffice.docspacepipedrive.service.RoomService;
+import com.onlyoffice.docspacepipedrive.web.dto.webhook.WebhookRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Objects;
+
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookActionManager {
+    private final PipedriveAdvancedPermissionsCache pipedriveAdvancedPermissionsCache;
+    private final RoomService roomService;
+    private final ClientService clientService;
+    private final PipedriveActionManager pipedriveActionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Requests are one deal's deliveries in arrival order without gaps: a delivery is claimed only after every
+    // older delivery of the deal is done, and the rest of its coalescing window is claimed with it
+    public void processUpdatedDeals(final List<WebhookRequest<PipedriveDeal>> requests) {
+        Client currentClient = SecurityUtils.getCurrentClient();
+
+        // A request without the previous state has nothing to compare with
+        List<WebhookRequest<PipedriveDeal>> changes = requests.stream()
+                .filter(request -> request.getPrevious() != null)
+                .toList();
+
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        // The burst is reduced to the earliest previous and the latest current
+        PipedriveDeal currentDeal = requests.get(requests.size() - 1).getCurrent();
+        PipedriveDeal previousDeal = changes.get(0).getPrevious();
+
+        try {
+            roomService.findByClientIdAndDealId(currentClient.getId(), currentDeal.getId());
+        } catch (RoomNotFoundException e) {
+            // Ignore it if there is no DocSpace room for the Pipedrive deal
+            return;
+        }
+
+        // Hook on change deal visible
+        if (!Objects.equals(currentDeal.getVisibleTo(), previousDeal.getVisibleTo())) {
+            int visibleToEveryone = PipedriveDeal.VisibleTo.EVERYONE.integer();
+
+            if (pipedriveAdvancedPermissionsCache.isEnabled()) {
+                visibleToEveryone = PipedriveDeal.VisibleTo.EVERYONE_ADVANCED_PERMISSIONS.integer();
+            }
+
+            if (Objects.equals(currentDeal.getVisibleTo(), visibleToEveryone)) {
+                eventPublisher.publishEvent(new AddVisibleEveryoneForPipedriveDealEvent(this, currentDeal));
+            }
+
+            if (Objects.equals(previousDeal.getVisibleTo(), visibleToEveryone)) {
+                eventPublisher.publishEvent(new RemoveVisibleEveryoneForPipedriveDealEvent(this, currentDeal));
+            }
+        }
+
+        // Hook on change deal followers count, checked per request as changes in a burst can cancel each other
+        boolean followersChanged = changes.stream()
+                .anyMatch(request -> !Objects.equals(
+                        request.getCurrent().getFollowersCount(),
+                        request.getPrevious().getFollowersCount()
+                ));
+
+        if (followersChanged) {
+            eventPublisher.publishEvent(new ReconcileFollowersForPipedriveDealEvent(this, previousDeal, currentDeal));
+        }
+    }
+
+    public void processUpdatedUsers(final WebhookRequest<List<PipedriveUser>> request) {
+        User currentUser = SecurityUtils.getCurrentUser();
+        Client currentClient = SecurityUtils.getCurrentClient();
+
+        List<PipedriveUser> currentUsers = request.getCurrent();
+        List<PipedriveUser> previousUsers = request.getPrevious();
+
+        boolean unsetSystemUser = currentUsers.stream()
+                .filter(pipedriveUser -> pipedriveUser.getId().equals(currentUser.getUserId()))
+                .filter(pipedriveUser -> !pipedriveUser.isSalesAdmin())
+                .filter(pipedriveUser -> {
+                    return previousUsers.stream()
+                            .filter(previousUser -> previousUser.getId().equals(pipedriveUser.getId()))
+                            .filter(previousUser -> previousUser.getAccess().stream()
+                                        .filter(access -> access.getAdmin())
+                                        .findFirst()
+                                        .orElse(null) != null
+                            )
+                            .findFirst()
+                            .orElse(null) != null;
+                })
+                .findFirst()
+                .orElse(null) != null;
+
+        if (unsetSystemUser) {
+            clientService.unsetSystemUser(currentClient.getId());
+            pipedriveActionManager.removeWebhooks();
+        }
+    }
+}
@@ -20,9 +20,43 @@ package com.onlyoffice.docspacepipedrive.repository;
 
 import com.onlyoffice.docspacepipedrive.entity.DocspaceAccount;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.List;
+
 
 @Repository
 public interface DocspaceAccountRepository extends JpaRepository<DocspaceAccount, Long> {
+    // System users first, they are the ones webhook processing and background work run as.
+    // Accounts claimed by a refresh on another node are skipped until the claim expires
+    @Query(
+            value = "SELECT docspace_accounts.* FROM docspace_accounts "
+                    + "LEFT JOIN clients ON clients.system_user_id = docspace_accounts.user_id "
+                    + "WHERE docspace_accounts.token_value IS NOT NULL "
+                    + "AND (docspace_accounts.token_issued_at IS NULL "
+                    + "OR docspace_accounts.token_issued_at < :issuedBefore) "
+                    + "AND (docspace_accounts.token_refresh_claimed_until IS NULL "
+                    + "OR docspace_accounts.token_refresh_claimed_until <= :now) "
+                    + "AND (:systemUsersOnly = FALSE OR clients.id IS NOT NULL) "
+                    + "ORDER BY clients.id IS NULL, docspace_accounts.token_issued_at NULLS FIRST LIMIT :limit "
+                    + "FOR UPDATE OF docspace_accounts SKIP LOCKED",
+            nativeQuery = true
+    )
+    List<DocspaceAccount> findAllWithTokenIssuedBeforeForUpdate(@Param("issuedBefore") Instant issuedBefore,
+                                                                @Param("now") Instant now,
+                                                                @Param("systemUsersOnly") boolean systemUsersOnly,
+                                                                @Param("limit") int limit);
+
+    // The claim column is not mapped, a token saved by the refresh does not touch it
+    @Modifying
+    @Query(
+            value = "UPDATE docspace_accounts SET token_refresh_claimed_until = :claimedUntil "
+                    + "WHERE user_id IN (:ids)",
+            nativeQuery = true
+    )
+    void claimTokenRefresh(@Param("ids") List<Long> ids, @Param("claimedUntil") Instant claimedUntil);
 }
@@ -0,0 +1,68 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.repository;
+
+import com.onlyoffice.docspacepipedrive.entity.SharedGroupMemberChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+
+@Repository
+public interface SharedGroupMemberChangeRepository extends JpaRepository<SharedGroupMemberChange, Long> {
+    // One row per member, the latest change replaces a pending one
+    @Modifying
+    @Query(
+            value = "INSERT INTO shared_group_member_changes (client_id, member_id, action, updated_at) "
+                    + "VALUES (:clientId, :memberId, :action, :updatedAt) "
+                    + "ON CONFLICT (client_id, member_id) "
+                    + "DO UPDATE SET action = EXCLUDED.action, updated_at = EXCLUDED.updated_at",
+            nativeQuery = true
+    )
+    void upsert(@Param("clientId") Long clientId, @Param("memberId") UUID memberId, @Param("action") String action,
+                @Param("updatedAt") Instant updatedAt);
+
+    // Rows claimed by a flush on another node are skipped until the claim expires
+    @Query(value = "SELECT * FROM shared_group_member_changes change WHERE change.client_id = :clientId "
+            + "AND (change.claimed_until IS NULL OR change.claimed_until <= :now) "
+            + "ORDER BY change.updated_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<SharedGroupMemberChange> findAllAvailableByClientIdForUpdate(@Param("clientId") Long clientId,
+                                                                      @Param("now") Instant now,
+                                                                      @Param("limit") int limit);
+
+    long countByClientId(Long clientId);
+
+    @Query("SELECT DISTINCT change.clientId FROM SharedGroupMemberChange change")
+    List<Long> findAllClientIds();
+
+    // Skips rows changed again after they were read, they are sent with the next flush
+    @Modifying
+    @Query("DELETE FROM SharedGroupMemberChange change WHERE change.id = :id AND change.updatedAt = :updatedAt")
+    int deleteByIdAndUpdatedAt(@Param("id") Long id, @Param("updatedAt") Instant updatedAt);
+
+    @Modifying
+    @Query("UPDATE SharedGroupMemberChange change SET change.claimedUntil = NULL WHERE change.id = :id")
+    void releaseById(@Param("id") Long id);
+}
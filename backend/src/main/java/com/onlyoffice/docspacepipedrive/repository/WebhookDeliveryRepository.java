@@ -0,0 +1,50 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.repository;
+
+import com.onlyoffice.docspacepipedrive.entity.WebhookDelivery;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+
+@Repository
+public interface WebhookDeliveryRepository extends JpaRepository<WebhookDelivery, Long> {
+    // A delivery waits while an older one with the same coalescing key is still in flight or scheduled for retry,
+    // otherwise the retry would later replay its stale state over newer one. Parked deliveries do not block
+    @Query(
+            value = "SELECT * FROM webhook_deliveries d WHERE d.available_at <= :now "
+                    + "AND NOT EXISTS (SELECT 1 FROM webhook_deliveries o WHERE o.coalescing_key = d.coalescing_key "
+                    + "AND o.id < d.id AND o.available_at IS NOT NULL) "
+                    + "ORDER BY d.id LIMIT :limit FOR UPDATE OF d SKIP LOCKED",
+            nativeQuery = true
+    )
+    List<WebhookDelivery> findAllAvailableForUpdate(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Query(
+            value = "SELECT * FROM webhook_deliveries WHERE coalescing_key = :coalescingKey AND attempts = 0 "
+                    + "ORDER BY id FOR UPDATE SKIP LOCKED",
+            nativeQuery = true
+    )
+    List<WebhookDelivery> findAllPendingByCoalescingKeyForUpdate(@Param("coalescingKey") String coalescingKey);
+}
@@ -0,0 +1,74 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.security.oauth;
+
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.security.token.UserAuthenticationToken;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import com.onlyoffice.docspacepipedrive.service.UserService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.web.OAuth2AuthorizedClientRepository;
+import org.springframework.stereotype.Service;
+
+
+@Service
+@RequiredArgsConstructor
+public class OAuth2AuthorizedClientServiceImpl implements OAuth2AuthorizedClientService {
+    private final OAuth2AuthorizedClientRepository oAuth2AuthorizedClientRepository;
+    private final UserService userService;
+
+    @Override
+    public <T extends OAuth2AuthorizedClient> T loadAuthorizedClient(final String clientRegistrationId,
+                                                                     final String principalName) {
+        return oAuth2AuthorizedClientRepository.loadAuthorizedClient(
+                clientRegistrationId,
+                getAuthentication(principalName),
+                null
+        );
+    }
+
+    @Override
+    public void saveAuthorizedClient(final OAuth2AuthorizedClient authorizedClient,
+                                     final Authentication principal) {
+        oAuth2AuthorizedClientRepository.saveAuthorizedClient(authorizedClient, principal, null, null);
+    }
+
+    @Override
+    public void removeAuthorizedClient(final String clientRegistrationId, final String principalName) {
+        oAuth2AuthorizedClientRepository.removeAuthorizedClient(
+                clientRegistrationId,
+                getAuthentication(principalName),
+                null,
+                null
+        );
+    }
+
+    private Authentication getAuthentication(final String principalName) {
+        User currentUser = SecurityUtils.getCurrentUser();
+
+        if (currentUser != null && currentUser.getId().toString().equals(principalName)) {
+            return new UserAuthenticationToken(currentUser);
+        }
+
+        return new UserAuthenticationToken(userService.findById(Long.parseLong(principalName)));
+    }
+}
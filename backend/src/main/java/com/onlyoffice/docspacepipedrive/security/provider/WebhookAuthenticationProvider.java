@@ -18,13 +18,19 @@
 
 package com.onlyoffice.docspacepipedrive.security.provider;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.onlyoffice.docspacepipedrive.entity.User;
 import com.onlyoffice.docspacepipedrive.entity.Webhook;
+import com.onlyoffice.docspacepipedrive.events.webhook.WebhookDeletedEvent;
 import com.onlyoffice.docspacepipedrive.exceptions.WebhookNotFoundException;
 import com.onlyoffice.docspacepipedrive.security.token.UserAuthenticationToken;
 import com.onlyoffice.docspacepipedrive.service.WebhookService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.context.support.MessageSourceAccessor;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.BadCredentialsException;
@@ -36,6 +42,11 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
 import java.util.UUID;
 
 
@@ -46,6 +57,21 @@ public class WebhookAuthenticationProvider implements AuthenticationProvider {
     private final WebhookService webhookService;
     private final PasswordEncoder passwordEncoder;
     private MessageSourceAccessor messages = SpringSecurityMessageSource.getAccessor();
+    // Secrets which already passed BCrypt check, mapped to the password hash they were verified against
+    private Cache<VerifiedCredentials, String> verifiedCredentials;
+
+    @Value("${app.webhook-credentials-cache.maximum-size}")
+    private long maximumSize;
+    @Value("${app.webhook-credentials-cache.expire-after-write}")
+    private Duration expireAfterWrite;
+
+    @PostConstruct
+    public void init() {
+        verifiedCredentials = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
 
     @Override
     public Authentication authenticate(final Authentication authentication) throws AuthenticationException {
@@ -56,25 +82,40 @@ public class WebhookAuthenticationProvider implements AuthenticationProvider {
             );
         });
 
+        UUID webhookId = UUID.fromString((String) authentication.getPrincipal());
+        String credentials = authentication.getCredentials().toString();
+
         Webhook webhook;
         try {
-            webhook = webhookService.findById(UUID.fromString((String) authentication.getPrincipal()));
+            webhook = webhookService.findById(webhookId);
         } catch (WebhookNotFoundException e) {
             throw new BadCredentialsException(e.getMessage());
         }
 
-        if (!passwordEncoder.matches(authentication.getCredentials().toString(), webhook.getPassword())) {
-            throw new BadCredentialsException(
-                    this.messages.getMessage(
-                            "WebhookAuthenticationProvider.badCredentials",
-                            "Bad credentials"
-                    )
-            );
+        VerifiedCredentials key = new VerifiedCredentials(webhookId, sha256(credentials));
+
+        // Compare with the current hash, so a webhook saved with a new password is verified again
+        if (!webhook.getPassword().equals(verifiedCredentials.getIfPresent(key))) {
+            if (!passwordEncoder.matches(credentials, webhook.getPassword())) {
+                throw new BadCredentialsException(
+                        this.messages.getMessage(
+                                "WebhookAuthenticationProvider.badCredentials",
+                                "Bad credentials"
+                        )
+                );
+            }
+
+            verifiedCredentials.put(key, webhook.getPassword());
         }
 
         return createSuccessAuthentication(webhook.getUser(), authentication);
     }
 
+    @EventListener
+    public void listen(final WebhookDeletedEvent event) {
+        evict(event.getWebhookId());
+    }
+
     @Override
     public boolean supports(final Class<?> authentication) {
         return UsernamePasswordAuthenticationToken.class.isAssignableFrom(authentication);
@@ -87,4 +128,21 @@ public class WebhookAuthenticationProvider implements AuthenticationProvider {
         log.debug("Authenticated user");
         return result;
     }
+
+    private void evict(final UUID webhookId) {
+        verifiedCredentials.asMap().keySet().removeIf(key -> key.webhookId().equals(webhookId));
+    }
+
+    private static String sha256(final String value) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+
+            return HexFormat.of().formatHex(messageDigest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record VerifiedCredentials(UUID webhookId, String credentialsHash) {
+    }
 }
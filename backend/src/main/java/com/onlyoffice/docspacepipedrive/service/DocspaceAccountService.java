@@ -21,11 +21,15 @@ package com.onlyoffice.docspacepipedrive.service;
 import com.onlyoffice.docspacepipedrive.entity.DocspaceAccount;
 import com.onlyoffice.docspacepipedrive.entity.docspaceaccount.DocspaceToken;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 
 
 public interface DocspaceAccountService {
     DocspaceAccount findById(Long id);
+    List<DocspaceAccount> claimAllWithTokenIssuedBefore(Instant issuedBefore, boolean systemUsersOnly, int limit,
+                                                        Duration claimTimeout);
     DocspaceAccount save(Long id, DocspaceAccount docspaceAccount);
     DocspaceToken saveToken(Long id, String value);
     void deleteById(Long id);
@@ -20,9 +20,12 @@ package com.onlyoffice.docspacepipedrive.service;
 
 import com.onlyoffice.docspacepipedrive.entity.Room;
 
+import java.util.Set;
+
 public interface RoomService {
     Room findByClientIdAndDealId(Long clientId, Long dealId);
     Room create(Long clientId, Room room);
     Room update(Long clientId, Room room);
+    Room saveFollowers(Long clientId, Long dealId, Set<Long> followers);
     void deleteAllByClientId(Long clientId);
 }
@@ -0,0 +1,34 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.service;
+
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.entity.WebhookDelivery;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+
+public interface WebhookDeliveryService {
+    WebhookDelivery create(User user, String eventObject, String coalescingKey, String payload);
+    List<WebhookDelivery> claimAvailable(int limit, Duration visibilityTimeout);
+    void reschedule(Long id, Instant availableAt, String lastError);
+    void deleteById(Long id);
+}
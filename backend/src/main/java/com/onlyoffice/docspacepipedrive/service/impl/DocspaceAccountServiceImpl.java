@@ -31,6 +31,7 @@ import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 
@@ -48,6 +49,31 @@ public class DocspaceAccountServiceImpl implements DocspaceAccountService {
                 .orElse(null);
     }
 
+    @Override
+    @Transactional
+    public List<DocspaceAccount> claimAllWithTokenIssuedBefore(final Instant issuedBefore,
+                                                               final boolean systemUsersOnly,
+                                                               final int limit,
+                                                               final Duration claimTimeout) {
+        Instant now = Instant.now();
+
+        List<DocspaceAccount> docspaceAccounts = docspaceAccountRepository.findAllWithTokenIssuedBeforeForUpdate(
+                issuedBefore,
+                now,
+                systemUsersOnly,
+                limit
+        );
+
+        if (!docspaceAccounts.isEmpty()) {
+            docspaceAccountRepository.claimTokenRefresh(
+                    docspaceAccounts.stream().map(DocspaceAccount::getUserId).toList(),
+                    now.plus(claimTimeout)
+            );
+        }
+
+        return docspaceAccounts;
+    }
+
     @Override
     public DocspaceAccount save(final Long id, final DocspaceAccount docspaceAccount) {
         User user = userService.findById(id);
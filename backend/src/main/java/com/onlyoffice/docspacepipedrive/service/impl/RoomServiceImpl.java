@@ -27,6 +27,9 @@ import com.onlyoffice.docspacepipedrive.service.RoomService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+import java.util.Set;
+
 
 @Service
 @RequiredArgsConstructor
@@ -58,6 +61,17 @@ public class RoomServiceImpl implements RoomService {
         return roomRepository.save(room);
     }
 
+    @Override
+    public Room saveFollowers(final Long clientId, final Long dealId, final Set<Long> followers) {
+        Room existedRoom = findByClientIdAndDealId(clientId, dealId);
+
+        existedRoom.getFollowers().clear();
+        existedRoom.getFollowers().addAll(followers);
+        existedRoom.setFollowersSyncedAt(Instant.now());
+
+        return roomRepository.save(existedRoom);
+    }
+
     @Override
     public void deleteAllByClientId(final Long clientId) {
         roomRepository.deleteAllByClientId(clientId);
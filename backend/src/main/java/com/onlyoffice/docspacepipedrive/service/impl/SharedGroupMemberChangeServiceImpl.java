@@ -0,0 +1,86 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.service.impl;
+
+import com.onlyoffice.docspacepipedrive.entity.SharedGroupMemberChange;
+import com.onlyoffice.docspacepipedrive.repository.SharedGroupMemberChangeRepository;
+import com.onlyoffice.docspacepipedrive.service.SharedGroupMemberChangeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+
+@Service
+@RequiredArgsConstructor
+public class SharedGroupMemberChangeServiceImpl implements SharedGroupMemberChangeService {
+    private final SharedGroupMemberChangeRepository sharedGroupMemberChangeRepository;
+
+    @Override
+    @Transactional
+    public void save(final Long clientId, final UUID memberId, final SharedGroupMemberChange.Action action) {
+        sharedGroupMemberChangeRepository.upsert(clientId, memberId, action.name(), Instant.now());
+    }
+
+    @Override
+    @Transactional
+    public List<SharedGroupMemberChange> claimAllByClientId(final Long clientId, final int limit,
+                                                            final Duration claimTimeout) {
+        Instant now = Instant.now();
+
+        List<SharedGroupMemberChange> sharedGroupMemberChanges =
+                sharedGroupMemberChangeRepository.findAllAvailableByClientIdForUpdate(clientId, now, limit);
+
+        for (SharedGroupMemberChange sharedGroupMemberChange : sharedGroupMemberChanges) {
+            sharedGroupMemberChange.setClaimedUntil(now.plus(claimTimeout));
+        }
+
+        return sharedGroupMemberChangeRepository.saveAll(sharedGroupMemberChanges);
+    }
+
+    @Override
+    public long countByClientId(final Long clientId) {
+        return sharedGroupMemberChangeRepository.countByClientId(clientId);
+    }
+
+    @Override
+    public List<Long> findAllClientIds() {
+        return sharedGroupMemberChangeRepository.findAllClientIds();
+    }
+
+    @Override
+    @Transactional
+    public void deleteAll(final List<SharedGroupMemberChange> sharedGroupMemberChanges) {
+        for (SharedGroupMemberChange sharedGroupMemberChange : sharedGroupMemberChanges) {
+            int deleted = sharedGroupMemberChangeRepository.deleteByIdAndUpdatedAt(
+                    sharedGroupMemberChange.getId(),
+                    sharedGroupMemberChange.getUpdatedAt()
+            );
+
+            // Changed again while it was sent, the next flush sends the latest action
+            if (deleted == 0) {
+                sharedGroupMemberChangeRepository.releaseById(sharedGroupMemberChange.getId());
+            }
+        }
+    }
+}
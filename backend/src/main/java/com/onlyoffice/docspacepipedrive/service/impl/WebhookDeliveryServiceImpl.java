@@ -0,0 +1,118 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.service.impl;
+
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.entity.WebhookDelivery;
+import com.onlyoffice.docspacepipedrive.repository.WebhookDeliveryRepository;
+import com.onlyoffice.docspacepipedrive.service.WebhookDeliveryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+@Service
+@RequiredArgsConstructor
+public class WebhookDeliveryServiceImpl implements WebhookDeliveryService {
+    private static final int LAST_ERROR_MAX_LENGTH = 2048;
+
+    private final WebhookDeliveryRepository webhookDeliveryRepository;
+
+    @Value("${app.webhook-deliveries.coalescing-window}")
+    private Duration coalescingWindow;
+
+    @Override
+    public WebhookDelivery create(final User user, final String eventObject, final String coalescingKey,
+                                  final String payload) {
+        Instant now = Instant.now();
+
+        // Deliveries with a coalescing key wait for the window, so a burst for the same key is processed once
+        Instant availableAt = now;
+        if (coalescingKey != null) {
+            availableAt = now.plus(coalescingWindow);
+        }
+
+        WebhookDelivery webhookDelivery = WebhookDelivery.builder()
+                .user(user)
+                .eventObject(eventObject)
+                .coalescingKey(coalescingKey)
+                .payload(payload)
+                .createdAt(now)
+                .availableAt(availableAt)
+                .build();
+
+        return webhookDeliveryRepository.save(webhookDelivery);
+    }
+
+    @Override
+    @Transactional
+    public List<WebhookDelivery> claimAvailable(final int limit, final Duration visibilityTimeout) {
+        Instant now = Instant.now();
+
+        Map<Long, WebhookDelivery> webhookDeliveries = new LinkedHashMap<>();
+        for (WebhookDelivery webhookDelivery : webhookDeliveryRepository.findAllAvailableForUpdate(now, limit)) {
+            webhookDeliveries.put(webhookDelivery.getId(), webhookDelivery);
+
+            // Claim the rest of the burst together with the delivery which opened the coalescing window
+            if (webhookDelivery.getCoalescingKey() != null) {
+                webhookDeliveryRepository.findAllPendingByCoalescingKeyForUpdate(webhookDelivery.getCoalescingKey())
+                        .forEach(pendingDelivery -> webhookDeliveries.putIfAbsent(
+                                pendingDelivery.getId(),
+                                pendingDelivery
+                        ));
+            }
+        }
+
+        List<WebhookDelivery> claimedDeliveries = new ArrayList<>(webhookDeliveries.values());
+        for (WebhookDelivery webhookDelivery : claimedDeliveries) {
+            webhookDelivery.setAttempts(webhookDelivery.getAttempts() + 1);
+            webhookDelivery.setAvailableAt(now.plus(visibilityTimeout));
+        }
+
+        return webhookDeliveryRepository.saveAll(claimedDeliveries);
+    }
+
+    @Override
+    public void reschedule(final Long id, final Instant availableAt, final String lastError) {
+        webhookDeliveryRepository.findById(id).ifPresent(webhookDelivery -> {
+            webhookDelivery.setAvailableAt(availableAt);
+
+            if (lastError != null && lastError.length() > LAST_ERROR_MAX_LENGTH) {
+                webhookDelivery.setLastError(lastError.substring(0, LAST_ERROR_MAX_LENGTH));
+            } else {
+                webhookDelivery.setLastError(lastError);
+            }
+
+            webhookDeliveryRepository.save(webhookDelivery);
+        });
+    }
+
+    @Override
+    public void deleteById(final Long id) {
+        webhookDeliveryRepository.deleteById(id);
+    }
+}
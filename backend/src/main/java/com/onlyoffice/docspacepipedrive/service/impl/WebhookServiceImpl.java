@@ -19,10 +19,12 @@
 package com.onlyoffice.docspacepipedrive.service.impl;
 
 import com.onlyoffice.docspacepipedrive.entity.Webhook;
+import com.onlyoffice.docspacepipedrive.events.webhook.WebhookDeletedEvent;
 import com.onlyoffice.docspacepipedrive.exceptions.WebhookNotFoundException;
 import com.onlyoffice.docspacepipedrive.repository.WebhookRepository;
 import com.onlyoffice.docspacepipedrive.service.WebhookService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -35,6 +37,7 @@ import java.util.UUID;
 public class WebhookServiceImpl implements WebhookService {
     private final WebhookRepository webhookRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher applicationEventPublisher;
 
     @Override
     public Webhook findById(final UUID id) {
@@ -56,5 +59,7 @@ public class WebhookServiceImpl implements WebhookService {
     @Override
     public void deleteById(final UUID id) {
         webhookRepository.deleteById(id);
+
+        applicationEventPublisher.publishEvent(new WebhookDeletedEvent(this, id));
     }
 }
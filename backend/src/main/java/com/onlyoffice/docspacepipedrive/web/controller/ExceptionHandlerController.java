@@ -21,6 +21,7 @@ package com.onlyoffice.docspacepipedrive.web.controller;
 import com.onlyoffice.docspacepipedrive.exceptions.DocspaceAccessDeniedException;
 import com.onlyoffice.docspacepipedrive.exceptions.DocspaceAccountAlreadyExistsException;
 import com.onlyoffice.docspacepipedrive.exceptions.DocspaceAuthorizationException;
+import com.onlyoffice.docspacepipedrive.exceptions.DocspaceUnavailableException;
 import com.onlyoffice.docspacepipedrive.exceptions.DocspaceUrlNotFoundException;
 import com.onlyoffice.docspacepipedrive.exceptions.DocspaceWebClientResponseException;
 import com.onlyoffice.docspacepipedrive.exceptions.PipedriveAccessDeniedException;
@@ -99,6 +100,18 @@ public class ExceptionHandlerController {
                 );
     }
 
+    @ExceptionHandler(DocspaceUnavailableException.class)
+    public ResponseEntity<ErrorResponse> docspaceUnavailableException(DocspaceUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(
+                        new ErrorResponse(
+                                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                                e.getLocalizedMessage(),
+                                ErrorResponse.Provider.DOCSPACE
+                        )
+                );
+    }
+
     @ExceptionHandler(DocspaceAccessDeniedException.class)
     public ResponseEntity<ErrorResponse> docspaceAccessDeniedException(DocspaceAccessDeniedException e) {
         return ResponseEntity.status(HttpStatus.FORBIDDEN)
@@ -18,6 +18,7 @@
 
 package com.onlyoffice.docspacepipedrive.web.controller;
 
+import com.onlyoffice.docspacepipedrive.cache.PipedriveDealAccessCache;
 import com.onlyoffice.docspacepipedrive.client.docspace.DocspaceClient;
 import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceRoom;
 import com.onlyoffice.docspacepipedrive.client.pipedrive.PipedriveClient;
@@ -27,6 +28,7 @@ import com.onlyoffice.docspacepipedrive.entity.Client;
 import com.onlyoffice.docspacepipedrive.entity.Room;
 import com.onlyoffice.docspacepipedrive.entity.User;
 import com.onlyoffice.docspacepipedrive.events.deal.AddRoomToPipedriveDealEvent;
+import com.onlyoffice.docspacepipedrive.events.deal.DealEventDispatcher;
 import com.onlyoffice.docspacepipedrive.exceptions.RoomNotFoundException;
 import com.onlyoffice.docspacepipedrive.manager.DocspaceActionManager;
 import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
@@ -60,13 +62,15 @@ public class RoomController {
     private final DocspaceClient docspaceClient;
     private final DocspaceActionManager docspaceActionManager;
     private final ApplicationEventPublisher eventPublisher;
+    private final DealEventDispatcher dealEventDispatcher;
+    private final PipedriveDealAccessCache pipedriveDealAccessCache;
 
     @GetMapping("/{dealId}")
     public ResponseEntity<RoomResponse> findByDealId(
             @AuthenticationPrincipal(expression = "client") Client currentClient,
             @PathVariable Long dealId
     ) {
-        pipedriveClient.getDeal(dealId);
+        pipedriveDealAccessCache.checkAccess(dealId);
 
         return ResponseEntity.ok(
                 roomMapper.roomToRoomResponse(roomService.findByClientIdAndDealId(currentClient.getId(), dealId))
@@ -74,7 +78,8 @@ public class RoomController {
     }
 
     @PostMapping("/{dealId}")
-    public ResponseEntity<RoomResponse> create(@AuthenticationPrincipal(expression = "client") Client currentClient,
+    public ResponseEntity<RoomResponse> create(@AuthenticationPrincipal User currentUser,
+                                               @AuthenticationPrincipal(expression = "client") Client currentClient,
                                                @PathVariable Long dealId) {
         PipedriveDeal pipedriveDeal = pipedriveClient.getDeal(dealId);
 
@@ -99,13 +104,13 @@ public class RoomController {
             createdRoom = roomService.create(currentClient.getId(), room);
         }
 
-        try {
-            eventPublisher.publishEvent(
-                    new AddRoomToPipedriveDealEvent(this, pipedriveDeal, createdRoom.getRoomId())
-            );
-        } catch (Exception e) {
+        Long roomId = createdRoom.getRoomId();
+        dealEventDispatcher.dispatch(currentUser, pipedriveDeal.getId(), () -> {
+            eventPublisher.publishEvent(new AddRoomToPipedriveDealEvent(this, pipedriveDeal, roomId));
+        }).exceptionally(e -> {
             log.warn(e.getMessage(), e);
-        }
+            return null;
+        });
 
         return ResponseEntity.ok(roomMapper.roomToRoomResponse(createdRoom));
     }
@@ -18,25 +18,19 @@
 
 package com.onlyoffice.docspacepipedrive.web.controller;
 
-import com.onlyoffice.docspacepipedrive.client.pipedrive.PipedriveClient;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlyoffice.docspacepipedrive.cache.PipedriveDealAccessCache;
+import com.onlyoffice.docspacepipedrive.cache.WebhookDeliveryDeduplicator;
 import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDeal;
 import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveUser;
-import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveUserSettings;
-import com.onlyoffice.docspacepipedrive.entity.Client;
 import com.onlyoffice.docspacepipedrive.entity.User;
-import com.onlyoffice.docspacepipedrive.events.deal.AddFollowersToPipedriveDealEvent;
-import com.onlyoffice.docspacepipedrive.events.deal.AddVisibleEveryoneForPipedriveDealEvent;
-import com.onlyoffice.docspacepipedrive.events.deal.RemoveFollowersFromPipedriveDealEvent;
-import com.onlyoffice.docspacepipedrive.events.deal.RemoveVisibleEveryoneForPipedriveDealEvent;
 import com.onlyoffice.docspacepipedrive.exceptions.PipedriveAccessDeniedException;
-import com.onlyoffice.docspacepipedrive.exceptions.RoomNotFoundException;
 import com.onlyoffice.docspacepipedrive.manager.PipedriveActionManager;
-import com.onlyoffice.docspacepipedrive.service.ClientService;
-import com.onlyoffice.docspacepipedrive.service.RoomService;
+import com.onlyoffice.docspacepipedrive.service.WebhookDeliveryService;
 import com.onlyoffice.docspacepipedrive.web.dto.webhook.WebhookRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -44,6 +38,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.Objects;
 
 
 @RestController
@@ -51,96 +46,70 @@ import java.util.List;
 @RequiredArgsConstructor
 @Slf4j
 public class WebhookController {
-    private final PipedriveClient pipedriveClient;
-    private final RoomService roomService;
-    private final ClientService clientService;
     private final PipedriveActionManager pipedriveActionManager;
-    private final ApplicationEventPublisher eventPublisher;
+    private final WebhookDeliveryService webhookDeliveryService;
+    private final WebhookDeliveryDeduplicator webhookDeliveryDeduplicator;
+    private final PipedriveDealAccessCache pipedriveDealAccessCache;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/deal")
     public void updatedDeal(@AuthenticationPrincipal User currentUser,
-                            @AuthenticationPrincipal(expression = "client") Client currentClient,
-                            @RequestBody WebhookRequest<PipedriveDeal> request) {
-        PipedriveDeal currentDeal = request.getCurrent();
-        PipedriveDeal previousDeal = request.getPrevious();
-
+                            @RequestBody WebhookRequest<PipedriveDeal> request) throws JsonProcessingException {
         if (!currentUser.isSystemUser()) {
             pipedriveActionManager.removeWebhooks();
             throw new PipedriveAccessDeniedException(currentUser.getUserId());
         }
 
-        try {
-            roomService.findByClientIdAndDealId(currentClient.getId(), currentDeal.getId());
-        } catch (RoomNotFoundException e) {
-            // Ignore it if there is no DocSpace room for the Pipedrive deal
-            return;
-        }
-
-        // Hook on change deal visible
-        if (!currentDeal.getVisibleTo().equals(previousDeal.getVisibleTo())) {
-            PipedriveUserSettings pipedriveUserSettings = pipedriveClient.getUserSettings();
-
-            int visibleToEveryone = PipedriveDeal.VisibleTo.EVERYONE.integer();
-
-            if (pipedriveUserSettings.getAdvancedPermissions()) {
-                visibleToEveryone = PipedriveDeal.VisibleTo.EVERYONE_ADVANCED_PERMISSIONS.integer();
-            }
-
-            if (currentDeal.getVisibleTo().equals(visibleToEveryone)) {
-                eventPublisher.publishEvent(new AddVisibleEveryoneForPipedriveDealEvent(this, currentDeal));
-            }
-
-            if (previousDeal.getVisibleTo().equals(visibleToEveryone)) {
-                eventPublisher.publishEvent(new RemoveVisibleEveryoneForPipedriveDealEvent(this, currentDeal));
-            }
+        // Who can read the deal depends on its visibility and, for owner-only deals, on its owner and followers.
+        // Invalidated on receipt, not after the coalescing window of the delivery
+        PipedriveDeal currentDeal = request.getCurrent();
+        PipedriveDeal previousDeal = request.getPrevious();
+        if (previousDeal != null && (!Objects.equals(currentDeal.getVisibleTo(), previousDeal.getVisibleTo())
+                || !Objects.equals(currentDeal.getUserId(), previousDeal.getUserId())
+                || !Objects.equals(currentDeal.getFollowersCount(), previousDeal.getFollowersCount()))) {
+            pipedriveDealAccessCache.invalidate(currentUser.getClient().getId(), currentDeal.getId());
         }
 
-        // Hook on change deal followers count
-        if (!currentDeal.getFollowersCount().equals(previousDeal.getFollowersCount())) {
-            // If added follower
-            if (currentDeal.getFollowersCount() > previousDeal.getFollowersCount()) {
-                eventPublisher.publishEvent(new AddFollowersToPipedriveDealEvent(this, currentDeal));
-            }
-
-            // If removed follower
-            if (currentDeal.getFollowersCount() < previousDeal.getFollowersCount()) {
-                eventPublisher.publishEvent(new RemoveFollowersFromPipedriveDealEvent(this, currentDeal));
-            }
-        }
+        enqueue(
+                currentUser,
+                "deal",
+                currentUser.getClient().getId() + ":" + request.getCurrent().getId(),
+                request
+        );
     }
 
     @PostMapping("/user")
     public void updatedUser(@AuthenticationPrincipal User currentUser,
-                            @AuthenticationPrincipal(expression = "client") Client currentClient,
-                            @RequestBody WebhookRequest<List<PipedriveUser>> request) {
-        List<PipedriveUser> currentUsers = request.getCurrent();
-        List<PipedriveUser> previousUsers = request.getPrevious();
-
+                            @RequestBody WebhookRequest<List<PipedriveUser>> request) throws JsonProcessingException {
         if (!currentUser.isSystemUser()) {
             pipedriveActionManager.removeWebhooks();
             throw new PipedriveAccessDeniedException(currentUser.getUserId());
         }
 
-        boolean unsetSystemUser = currentUsers.stream()
-                .filter(pipedriveUser -> pipedriveUser.getId().equals(currentUser.getUserId()))
-                .filter(pipedriveUser -> !pipedriveUser.isSalesAdmin())
-                .filter(pipedriveUser -> {
-                    return previousUsers.stream()
-                            .filter(previousUser -> previousUser.getId().equals(pipedriveUser.getId()))
-                            .filter(previousUser -> previousUser.getAccess().stream()
-                                        .filter(access -> access.getAdmin())
-                                        .findFirst()
-                                        .orElse(null) != null
-                            )
-                            .findFirst()
-                            .orElse(null) != null;
-                })
-                .findFirst()
-                .orElse(null) != null;
+        enqueue(currentUser, "user", null, request);
+    }
 
-        if (unsetSystemUser) {
-            clientService.unsetSystemUser(currentClient.getId());
-            pipedriveActionManager.removeWebhooks();
+    private void enqueue(User currentUser, String eventObject, String coalescingKey, WebhookRequest<?> request)
+            throws JsonProcessingException {
+        String deliveryKey = webhookDeliveryDeduplicator.getDeliveryKey(request.getMeta());
+
+        if (!webhookDeliveryDeduplicator.tryAcquire(deliveryKey)) {
+            log.debug("Skipped duplicate Webhook delivery ({})", deliveryKey);
+            return;
+        }
+
+        // Processed by WebhookDeliveryWorker, so the acknowledgement does not wait for DocSpace and Pipedrive
+        try {
+            webhookDeliveryService.create(
+                    currentUser,
+                    eventObject,
+                    coalescingKey,
+                    objectMapper.writeValueAsString(request)
+            );
+        } catch (JsonProcessingException | RuntimeException e) {
+            // Let the redelivery from Pipedrive through if the delivery was not stored
+            webhookDeliveryDeduplicator.release(deliveryKey);
+            throw e;
         }
     }
 }
@@ -0,0 +1,123 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.worker;
+
+import com.onlyoffice.docspacepipedrive.client.docspace.DocspaceTokenManager;
+import com.onlyoffice.docspacepipedrive.entity.DocspaceAccount;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.service.DocspaceAccountService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+// Renews DocSpace tokens shortly before they expire, so requests rarely go through a 401 and a login.
+// Every node polls, a poll claims the accounts it refreshes so other nodes do not log in for them again
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DocspaceTokenRefreshWorker {
+    private final DocspaceAccountService docspaceAccountService;
+    private final DocspaceTokenManager docspaceTokenManager;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.docspace-token-refresh.enabled}")
+    private boolean enabled;
+    @Value("${app.docspace-token-refresh.token-lifetime}")
+    private Duration tokenLifetime;
+    @Value("${app.docspace-token-refresh.refresh-ahead}")
+    private Duration refreshAhead;
+    @Value("${app.docspace-token-refresh.jitter}")
+    private Duration jitter;
+    @Value("${app.docspace-token-refresh.concurrency}")
+    private int concurrency;
+    @Value("${app.docspace-token-refresh.batch-size}")
+    private int batchSize;
+    @Value("${app.docspace-token-refresh.system-users-only}")
+    private boolean systemUsersOnly;
+    @Value("${app.docspace-token-refresh.claim-timeout}")
+    private Duration claimTimeout;
+
+    @Scheduled(fixedDelayString = "${app.docspace-token-refresh.poll-interval}")
+    public void poll() {
+        // The previous batch is still refreshing, the next poll picks up what is left
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+
+        List<DocspaceAccount> docspaceAccounts;
+        try {
+            docspaceAccounts = docspaceAccountService.claimAllWithTokenIssuedBefore(
+                    Instant.now().minus(tokenLifetime).plus(refreshAhead),
+                    systemUsersOnly,
+                    batchSize,
+                    claimTimeout
+            );
+        } catch (Exception e) {
+            running.set(false);
+            throw e;
+        }
+
+        // Runs on Reactor schedulers, so the shared scheduling thread is not held while logging in
+        Flux.fromIterable(docspaceAccounts)
+                .flatMap(this::refresh, concurrency)
+                .doFinally(signalType -> running.set(false))
+                .subscribe();
+    }
+
+    private Mono<Void> refresh(final DocspaceAccount docspaceAccount) {
+        User user = docspaceAccount.getUser();
+
+        // Spread logins to one portal over the jitter window instead of sending them at once
+        Duration delay = Duration.ofMillis(ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1));
+
+        return Mono.delay(delay)
+                .then(Mono.defer(() -> docspaceTokenManager.refresh(user)))
+                .doOnSuccess(docspaceToken -> {
+                    meterRegistry.counter("docspace.token.refresh", "result", "success").increment();
+                })
+                .onErrorResume(e -> {
+                    meterRegistry.counter("docspace.token.refresh", "result", "failure").increment();
+
+                    log.warn(MessageFormat.format(
+                            "Failed to refresh DocSpace token for User with USER_ID({0}) and CLIENT_ID({1}): {2}",
+                            user.getUserId(),
+                            user.getClient().getId(),
+                            e.getMessage()
+                    ));
+
+                    return Mono.empty();
+                })
+                .then();
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.worker;
+
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.entity.SharedGroupMemberChange;
+import com.onlyoffice.docspacepipedrive.manager.DocspaceActionManager;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import com.onlyoffice.docspacepipedrive.service.ClientService;
+import com.onlyoffice.docspacepipedrive.service.SharedGroupMemberChangeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+// Buffers shared group membership changes in the database and applies them with one group update per client.
+// Every node flushes, a flush claims the rows it sends so other nodes do not send them again
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SharedGroupMembersWorker {
+    private final SharedGroupMemberChangeService sharedGroupMemberChangeService;
+    private final ClientService clientService;
+    private final DocspaceActionManager docspaceActionManager;
+    private final TaskScheduler taskScheduler;
+
+    // Clients with a full batch waiting for a flush, a burst of changes schedules one flush
+    private final Set<Long> flushRequests = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.shared-group-members.batch-size}")
+    private int batchSize;
+    @Value("${app.shared-group-members.claim-timeout}")
+    private Duration claimTimeout;
+
+    public void addMember(final Long clientId, final UUID memberId) {
+        enqueue(clientId, memberId, SharedGroupMemberChange.Action.ADD);
+    }
+
+    public void removeMember(final Long clientId, final UUID memberId) {
+        enqueue(clientId, memberId, SharedGroupMemberChange.Action.REMOVE);
+    }
+
+    @Scheduled(fixedDelayString = "${app.shared-group-members.flush-interval}")
+    public void poll() {
+        for (Long clientId : sharedGroupMemberChangeService.findAllClientIds()) {
+            flushSafely(clientId);
+        }
+    }
+
+    private void enqueue(final Long clientId, final UUID memberId, final SharedGroupMemberChange.Action action) {
+        sharedGroupMemberChangeService.save(clientId, memberId, action);
+
+        if (sharedGroupMemberChangeService.countByClientId(clientId) < batchSize) {
+            return;
+        }
+
+        // Flushed on the scheduler thread, not in the request that made the change
+        if (flushRequests.add(clientId)) {
+            taskScheduler.schedule(() -> {
+                flushRequests.remove(clientId);
+                flushSafely(clientId);
+            }, Instant.now());
+        }
+    }
+
+    private void flushSafely(final Long clientId) {
+        try {
+            flush(clientId);
+        } catch (Exception e) {
+            // Stays in the buffer, the next poll tries again after the claim expires
+            log.warn(MessageFormat.format(
+                    "Failed to update shared group members for Client ID({0}): {1}",
+                    clientId.toString(),
+                    e.getMessage()
+            ), e);
+        }
+    }
+
+    private void flush(final Long clientId) {
+        List<SharedGroupMemberChange> changes = sharedGroupMemberChangeService.claimAllByClientId(
+                clientId,
+                batchSize,
+                claimTimeout
+        );
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        Client client = clientService.findById(clientId);
+
+        // Without a system user there is no shared group to update, its next login adds all members anyway
+        if (client.existSystemUser()) {
+            List<UUID> membersToAdd = getMembers(changes, SharedGroupMemberChange.Action.ADD);
+            List<UUID> membersToRemove = getMembers(changes, SharedGroupMemberChange.Action.REMOVE);
+
+            SecurityUtils.runAs(new SecurityUtils.RunAsWork<Void>() {
+                public Void doWork() {
+                    docspaceActionManager.updateSharedGroupMembers(membersToAdd, membersToRemove);
+                    return null;
+                }
+            }, client.getSystemUser());
+        }
+
+        sharedGroupMemberChangeService.deleteAll(changes);
+    }
+
+    private List<UUID> getMembers(final List<SharedGroupMemberChange> changes,
+                                  final SharedGroupMemberChange.Action action) {
+        List<UUID> members = changes.stream()
+                .filter(change -> change.getAction().equals(action))
+                .map(SharedGroupMemberChange::getMemberId)
+                .toList();
+
+        if (members.isEmpty()) {
+            return null;
+        }
+
+        return members;
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.worker;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDeal;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveUser;
+import com.onlyoffice.docspacepipedrive.entity.WebhookDelivery;
+import com.onlyoffice.docspacepipedrive.events.deal.DealEventDispatcher;
+import com.onlyoffice.docspacepipedrive.manager.WebhookActionManager;
+import com.onlyoffice.docspacepipedrive.service.WebhookDeliveryService;
+import com.onlyoffice.docspacepipedrive.web.dto.webhook.WebhookRequest;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WebhookDeliveryWorker {
+    private static final int MAX_BACKOFF_EXPONENT = 10;
+
+    private final WebhookDeliveryService webhookDeliveryService;
+    private final WebhookActionManager webhookActionManager;
+    private final DealEventDispatcher dealEventDispatcher;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.webhook-deliveries.max-in-flight}")
+    private int maxInFlight;
+    @Value("${app.webhook-deliveries.batch-size}")
+    private int batchSize;
+    @Value("${app.webhook-deliveries.visibility-timeout}")
+    private Duration visibilityTimeout;
+    @Value("${app.webhook-deliveries.retry-delay}")
+    private Duration retryDelay;
+    @Value("${app.webhook-deliveries.max-attempts}")
+    private int maxAttempts;
+
+    private Semaphore permits;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(maxInFlight);
+    }
+
+    @Scheduled(fixedDelayString = "${app.webhook-deliveries.poll-interval}")
+    public void poll() {
+        int limit = Math.min(batchSize, permits.availablePermits());
+        if (limit <= 0) {
+            return;
+        }
+
+        List<WebhookDelivery> webhookDeliveries = webhookDeliveryService.claimAvailable(limit, visibilityTimeout);
+
+        // Deliveries of one coalescing window are processed together as a single task
+        Map<String, List<WebhookDelivery>> groups = new LinkedHashMap<>();
+        for (WebhookDelivery webhookDelivery : webhookDeliveries) {
+            String groupKey = webhookDelivery.getCoalescingKey();
+            if (groupKey == null) {
+                groupKey = webhookDelivery.getId().toString();
+            }
+
+            groups.computeIfAbsent(groupKey, key -> new ArrayList<>()).add(webhookDelivery);
+        }
+
+        // Deals are processed as a burst from the earliest to the latest delivery
+        groups.values().forEach(group -> group.sort(Comparator.comparing(WebhookDelivery::getId)));
+
+        for (List<WebhookDelivery> group : groups.values()) {
+            permits.acquireUninterruptibly();
+
+            CompletableFuture<Void> result;
+            try {
+                result = dispatch(group);
+            } catch (Exception e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+
+            result.whenComplete((value, e) -> {
+                try {
+                    complete(group, e);
+                } finally {
+                    permits.release();
+                }
+            });
+        }
+    }
+
+    private CompletableFuture<Void> dispatch(final List<WebhookDelivery> webhookDeliveries) throws Exception {
+        WebhookDelivery webhookDelivery = webhookDeliveries.get(webhookDeliveries.size() - 1);
+
+        switch (webhookDelivery.getEventObject()) {
+            case "deal":
+                List<WebhookRequest<PipedriveDeal>> requests = new ArrayList<>();
+                for (WebhookDelivery delivery : webhookDeliveries) {
+                    requests.add(objectMapper.readValue(
+                            delivery.getPayload(),
+                            new TypeReference<WebhookRequest<PipedriveDeal>>() { }
+                    ));
+                }
+
+                return dealEventDispatcher.dispatch(
+                        webhookDelivery.getUser(),
+                        requests.get(requests.size() - 1).getCurrent().getId(),
+                        () -> webhookActionManager.processUpdatedDeals(requests)
+                );
+            case "user":
+                WebhookRequest<List<PipedriveUser>> request = objectMapper.readValue(
+                        webhookDelivery.getPayload(),
+                        new TypeReference<WebhookRequest<List<PipedriveUser>>>() { }
+                );
+
+                return dealEventDispatcher.dispatch(
+                        webhookDelivery.getUser(),
+                        null,
+                        () -> webhookActionManager.processUpdatedUsers(request)
+                );
+            default:
+                log.warn(MessageFormat.format(
+                        "Unsupported event object ({0}) in Webhook delivery with ID ({1})",
+                        webhookDelivery.getEventObject(),
+                        webhookDelivery.getId().toString()
+                ));
+
+                return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void complete(final List<WebhookDelivery> webhookDeliveries, final Throwable throwable) {
+        for (WebhookDelivery webhookDelivery : webhookDeliveries) {
+            try {
+                if (throwable == null) {
+                    webhookDeliveryService.deleteById(webhookDelivery.getId());
+                } else if (throwable instanceof CompletionException && throwable.getCause() != null) {
+                    reschedule(webhookDelivery, throwable.getCause());
+                } else {
+                    reschedule(webhookDelivery, throwable);
+                }
+            } catch (Exception e) {
+                log.warn(e.getMessage(), e);
+            }
+        }
+    }
+
+    private void reschedule(final WebhookDelivery webhookDelivery, final Throwable e) {
+        if (webhookDelivery.getAttempts() >= maxAttempts) {
+            log.error(MessageFormat.format(
+                    "Webhook delivery with ID ({0}) failed after {1} attempts and will not be retried: {2}",
+                    webhookDelivery.getId().toString(),
+                    webhookDelivery.getAttempts().toString(),
+                    e.getMessage()
+            ), e);
+
+            webhookDeliveryService.reschedule(webhookDelivery.getId(), null, e.getMessage());
+            return;
+        }
+
+        int exponent = Math.min(webhookDelivery.getAttempts() - 1, MAX_BACKOFF_EXPONENT);
+        Instant availableAt = Instant.now().plus(retryDelay.multipliedBy(1L << exponent));
+
+        log.warn(MessageFormat.format(
+                "Webhook delivery with ID ({0}) failed on attempt {1}, next attempt at {2}: {3}",
+                webhookDelivery.getId().toString(),
+                webhookDelivery.getAttempts().toString(),
+                availableAt.toString(),
+                e.getMessage()
+        ));
+
+        webhookDeliveryService.reschedule(webhookDelivery.getId(), availableAt, e.getMessage());
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.cache;
+
+import com.onlyoffice.docspacepipedrive.client.docspace.ReactiveDocspaceClient;
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.entity.Settings;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.events.user.DocspaceLoginUserEvent;
+import com.onlyoffice.docspacepipedrive.events.user.DocspaceLogoutUserEvent;
+import com.onlyoffice.docspacepipedrive.security.token.UserAuthenticationToken;
+import com.onlyoffice.docspacepipedrive.service.ClientService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.lang.reflect.Constructor;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class DocspaceUnpaidUsersCacheTest {
+    private static final UUID UNPAID_USER_ID = UUID.fromString("aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaa1");
+
+    private final ReactiveDocspaceClient reactiveDocspaceClient = mock(ReactiveDocspaceClient.class);
+    private final Client client = createClient(10000L);
+    private final Client otherClient = createClient(10001L);
+    private final User user = User.builder().id(1L).userId(1L).client(client).build();
+    private final User otherUser = User.builder().id(2L).userId(2L).client(otherClient).build();
+
+    private DocspaceUnpaidUsersCache docspaceUnpaidUsersCache;
+
+    @BeforeEach
+    public void setUp() {
+        // Directory entries are private to the cache, they are created from the element type it asks for
+        when(reactiveDocspaceClient.findUsers(eq(2), any(Class.class))).thenAnswer(invocation -> {
+            Constructor<?> constructor = invocation.<Class<?>>getArgument(1).getDeclaredConstructor(UUID.class);
+            constructor.setAccessible(true);
+
+            return Flux.just(constructor.newInstance(UNPAID_USER_ID));
+        });
+
+        docspaceUnpaidUsersCache = new DocspaceUnpaidUsersCache(reactiveDocspaceClient, mock(ClientService.class));
+        ReflectionTestUtils.setField(docspaceUnpaidUsersCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(docspaceUnpaidUsersCache, "refreshAfterWrite", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(docspaceUnpaidUsersCache, "expireAfterWrite", Duration.ofHours(1));
+        docspaceUnpaidUsersCache.init();
+
+        SecurityContextHolder.getContext().setAuthentication(new UserAuthenticationToken(user));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void whenRepeatedReads_thenDirectoryIsFetchedOnce() {
+        assertEquals(Set.of(UNPAID_USER_ID), docspaceUnpaidUsersCache.getUnpaidUsers());
+        assertEquals(Set.of(UNPAID_USER_ID), docspaceUnpaidUsersCache.getUnpaidUsers());
+
+        verify(reactiveDocspaceClient, times(1)).findUsers(eq(2), any(Class.class));
+    }
+
+    @Test
+    public void whenUserLogsIn_thenDirectoryIsFetchedAgain() {
+        docspaceUnpaidUsersCache.getUnpaidUsers();
+        docspaceUnpaidUsersCache.listen(new DocspaceLoginUserEvent(this, null));
+        docspaceUnpaidUsersCache.getUnpaidUsers();
+
+        verify(reactiveDocspaceClient, times(2)).findUsers(eq(2), any(Class.class));
+    }
+
+    @Test
+    public void whenUserLogsOut_thenDirectoryIsFetchedAgain() {
+        docspaceUnpaidUsersCache.getUnpaidUsers();
+        docspaceUnpaidUsersCache.listen(new DocspaceLogoutUserEvent(this, null));
+        docspaceUnpaidUsersCache.getUnpaidUsers();
+
+        verify(reactiveDocspaceClient, times(2)).findUsers(eq(2), any(Class.class));
+    }
+
+    @Test
+    public void whenUserOfAnotherClientLogsIn_thenDirectoryIsKept() {
+        docspaceUnpaidUsersCache.getUnpaidUsers();
+
+        SecurityContextHolder.getContext().setAuthentication(new UserAuthenticationToken(otherUser));
+        docspaceUnpaidUsersCache.listen(new DocspaceLoginUserEvent(this, null));
+
+        SecurityContextHolder.getContext().setAuthentication(new UserAuthenticationToken(user));
+        docspaceUnpaidUsersCache.getUnpaidUsers();
+
+        verify(reactiveDocspaceClient, times(1)).findUsers(eq(2), any(Class.class));
+    }
+
+    @Test
+    public void whenPortalUrlChanges_thenDirectoryIsFetchedAgain() {
+        docspaceUnpaidUsersCache.getUnpaidUsers();
+        client.setSettings(Settings.builder().url("https://other.onlyoffice.io").build());
+        docspaceUnpaidUsersCache.getUnpaidUsers();
+
+        verify(reactiveDocspaceClient, times(2)).findUsers(eq(2), any(Class.class));
+    }
+
+    private Client createClient(final Long id) {
+        Client result = Client.builder().id(id).build();
+        result.setSettings(Settings.builder().url("https://docspace.onlyoffice.io").build());
+
+        return result;
+    }
+}
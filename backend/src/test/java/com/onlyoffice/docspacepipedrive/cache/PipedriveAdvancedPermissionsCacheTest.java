@@ -0,0 +1,120 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.cache;
+
+import com.onlyoffice.docspacepipedrive.client.pipedrive.PipedriveClient;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveUserSettings;
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.security.token.UserAuthenticationToken;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import com.onlyoffice.docspacepipedrive.service.ClientService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class PipedriveAdvancedPermissionsCacheTest {
+    private final PipedriveClient pipedriveClient = mock(PipedriveClient.class);
+    private final ClientService clientService = mock(ClientService.class);
+    private final Client client = Client.builder().id(10000L).build();
+    private final Client otherClient = Client.builder().id(10001L).build();
+    private final User user = User.builder().id(1L).userId(1L).client(client).build();
+    private final User systemUser = User.builder().id(2L).userId(2L).client(client).build();
+    private final User otherUser = User.builder().id(3L).userId(3L).client(otherClient).build();
+
+    // Users the settings were requested as
+    private final List<User> requestedAs = new CopyOnWriteArrayList<>();
+
+    private PipedriveAdvancedPermissionsCache pipedriveAdvancedPermissionsCache;
+
+    @BeforeEach
+    public void setUp() {
+        client.setSystemUser(systemUser);
+        when(clientService.findById(client.getId())).thenReturn(client);
+        when(pipedriveClient.getUserSettings()).thenAnswer(invocation -> {
+            User currentUser = SecurityUtils.getCurrentUser();
+            requestedAs.add(currentUser);
+
+            PipedriveUserSettings pipedriveUserSettings = new PipedriveUserSettings();
+            pipedriveUserSettings.setAdvancedPermissions(client.getId().equals(currentUser.getClient().getId()));
+            return pipedriveUserSettings;
+        });
+
+        SecurityContextHolder.getContext().setAuthentication(new UserAuthenticationToken(user));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void whenRepeatedChecks_thenSettingsAreFetchedOncePerClient() {
+        createPipedriveAdvancedPermissionsCache(Duration.ofMinutes(5));
+
+        assertTrue(pipedriveAdvancedPermissionsCache.isEnabled());
+        assertTrue(pipedriveAdvancedPermissionsCache.isEnabled());
+
+        SecurityContextHolder.getContext().setAuthentication(new UserAuthenticationToken(otherUser));
+        assertFalse(pipedriveAdvancedPermissionsCache.isEnabled());
+        assertFalse(pipedriveAdvancedPermissionsCache.isEnabled());
+
+        verify(pipedriveClient, times(2)).getUserSettings();
+        assertSame(user, requestedAs.get(0));
+        assertSame(otherUser, requestedAs.get(1));
+    }
+
+    @Test
+    public void whenEntryIsStale_thenItIsRefreshedAsSystemUser() throws Exception {
+        createPipedriveAdvancedPermissionsCache(Duration.ofMillis(1));
+
+        assertTrue(pipedriveAdvancedPermissionsCache.isEnabled());
+        Thread.sleep(10);
+
+        // The stale value is served while it is reloaded in background
+        assertTrue(pipedriveAdvancedPermissionsCache.isEnabled());
+
+        verify(pipedriveClient, timeout(5000).times(2)).getUserSettings();
+        assertSame(systemUser, requestedAs.get(1));
+    }
+
+    private void createPipedriveAdvancedPermissionsCache(final Duration refreshAfterWrite) {
+        pipedriveAdvancedPermissionsCache = new PipedriveAdvancedPermissionsCache(pipedriveClient, clientService);
+        ReflectionTestUtils.setField(pipedriveAdvancedPermissionsCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(pipedriveAdvancedPermissionsCache, "refreshAfterWrite", refreshAfterWrite);
+        ReflectionTestUtils.setField(pipedriveAdvancedPermissionsCache, "expireAfterWrite", Duration.ofHours(1));
+        pipedriveAdvancedPermissionsCache.init();
+    }
+}
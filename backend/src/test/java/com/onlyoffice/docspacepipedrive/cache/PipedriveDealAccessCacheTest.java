@@ -0,0 +1,96 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.cache;
+
+import com.onlyoffice.docspacepipedrive.client.pipedrive.PipedriveClient;
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.security.token.UserAuthenticationToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+
+public class PipedriveDealAccessCacheTest {
+    private static final Long DEAL_ID = 1L;
+
+    private final PipedriveClient pipedriveClient = mock(PipedriveClient.class);
+    private final Client client = Client.builder().id(10000L).build();
+    private final User user = User.builder().id(1L).userId(1L).client(client).build();
+
+    private PipedriveDealAccessCache pipedriveDealAccessCache;
+
+    @BeforeEach
+    public void setUp() {
+        pipedriveDealAccessCache = new PipedriveDealAccessCache(pipedriveClient, mock(StringRedisTemplate.class));
+        ReflectionTestUtils.setField(pipedriveDealAccessCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(pipedriveDealAccessCache, "expireAfterWrite", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(pipedriveDealAccessCache, "redisEnabled", false);
+        ReflectionTestUtils.setField(pipedriveDealAccessCache, "versionTtl", Duration.ofHours(24));
+        pipedriveDealAccessCache.init();
+
+        SecurityContextHolder.getContext().setAuthentication(new UserAuthenticationToken(user));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void whenRepeatedChecks_thenDealIsFetchedOnce() {
+        pipedriveDealAccessCache.checkAccess(DEAL_ID);
+        pipedriveDealAccessCache.checkAccess(DEAL_ID);
+
+        verify(pipedriveClient, times(1)).getDeal(DEAL_ID);
+    }
+
+    @Test
+    public void whenInvalidated_thenDealIsFetchedAgain() {
+        pipedriveDealAccessCache.checkAccess(DEAL_ID);
+        pipedriveDealAccessCache.invalidate(client.getId(), DEAL_ID);
+        pipedriveDealAccessCache.checkAccess(DEAL_ID);
+
+        verify(pipedriveClient, times(2)).getDeal(DEAL_ID);
+    }
+
+    @Test
+    public void whenInvalidatedWhileDealIsFetched_thenAccessIsNotCached() {
+        doAnswer(invocation -> {
+            pipedriveDealAccessCache.invalidate(client.getId(), DEAL_ID);
+            return null;
+        }).doReturn(null).when(pipedriveClient).getDeal(DEAL_ID);
+
+        pipedriveDealAccessCache.checkAccess(DEAL_ID);
+        pipedriveDealAccessCache.checkAccess(DEAL_ID);
+        pipedriveDealAccessCache.checkAccess(DEAL_ID);
+
+        verify(pipedriveClient, times(2)).getDeal(DEAL_ID);
+    }
+}
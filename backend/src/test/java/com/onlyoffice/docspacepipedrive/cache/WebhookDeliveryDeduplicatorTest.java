@@ -0,0 +1,124 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class WebhookDeliveryDeduplicatorTest {
+    private static final Map<String, Object> META = Map.of(
+            "webhook_id", 1,
+            "id", 4,
+            "timestamp", 1729411200,
+            "timestamp_micro", 1729411200123456L
+    );
+
+    private final StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+    private final ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+
+    private WebhookDeliveryDeduplicator webhookDeliveryDeduplicator;
+
+    @BeforeEach
+    public void setUp() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+
+        webhookDeliveryDeduplicator = new WebhookDeliveryDeduplicator(stringRedisTemplate);
+        ReflectionTestUtils.setField(webhookDeliveryDeduplicator, "maximumSize", 100L);
+        ReflectionTestUtils.setField(webhookDeliveryDeduplicator, "ttl", Duration.ofHours(1));
+        ReflectionTestUtils.setField(webhookDeliveryDeduplicator, "redisEnabled", false);
+        webhookDeliveryDeduplicator.init();
+    }
+
+    @Test
+    public void whenMetaIsComplete_thenDeliveryKeyUsesMicrosecondTimestamp() {
+        assertEquals("1:4:1729411200123456", webhookDeliveryDeduplicator.getDeliveryKey(META));
+    }
+
+    @Test
+    public void whenMetaIsIncomplete_thenDeliveryKeyIsNull() {
+        assertNull(webhookDeliveryDeduplicator.getDeliveryKey(null));
+        assertNull(webhookDeliveryDeduplicator.getDeliveryKey(Map.of("webhook_id", 1, "timestamp", 1729411200)));
+    }
+
+    @Test
+    public void whenDeliveryIsRepeated_thenOnlyFirstIsAcquired() {
+        String deliveryKey = webhookDeliveryDeduplicator.getDeliveryKey(META);
+
+        assertTrue(webhookDeliveryDeduplicator.tryAcquire(deliveryKey));
+        assertFalse(webhookDeliveryDeduplicator.tryAcquire(deliveryKey));
+        assertTrue(webhookDeliveryDeduplicator.tryAcquire("1:5:1729411200123456"));
+    }
+
+    @Test
+    public void whenDeliveryKeyIsNull_thenDeliveryIsAlwaysAcquired() {
+        assertTrue(webhookDeliveryDeduplicator.tryAcquire(null));
+        assertTrue(webhookDeliveryDeduplicator.tryAcquire(null));
+    }
+
+    @Test
+    public void whenReleased_thenDeliveryIsAcquiredAgain() {
+        String deliveryKey = webhookDeliveryDeduplicator.getDeliveryKey(META);
+
+        assertTrue(webhookDeliveryDeduplicator.tryAcquire(deliveryKey));
+        webhookDeliveryDeduplicator.release(deliveryKey);
+
+        assertTrue(webhookDeliveryDeduplicator.tryAcquire(deliveryKey));
+    }
+
+    @Test
+    public void whenDeliveryWasSeenByAnotherNode_thenItIsNotAcquired() {
+        ReflectionTestUtils.setField(webhookDeliveryDeduplicator, "redisEnabled", true);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(false);
+
+        assertFalse(webhookDeliveryDeduplicator.tryAcquire("1:4:1729411200123456"));
+        verify(valueOperations).setIfAbsent(
+                "docspace-pipedrive:webhook-delivery:1:4:1729411200123456",
+                "1",
+                Duration.ofHours(1)
+        );
+    }
+
+    @Test
+    public void whenRedisFails_thenLocalCacheIsUsed() {
+        ReflectionTestUtils.setField(webhookDeliveryDeduplicator, "redisEnabled", true);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenThrow(new RedisConnectionFailureException("Connection refused"));
+
+        assertTrue(webhookDeliveryDeduplicator.tryAcquire("1:4:1729411200123456"));
+        assertFalse(webhookDeliveryDeduplicator.tryAcquire("1:4:1729411200123456"));
+    }
+}
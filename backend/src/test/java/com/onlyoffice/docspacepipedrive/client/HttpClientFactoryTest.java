@@ -0,0 +1,128 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.Http11SslContextSpec;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.server.HttpServer;
+
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.time.Duration;
+import javax.net.ssl.KeyManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+public class HttpClientFactoryTest {
+    private static final char[] KEY_STORE_PASSWORD = "password".toCharArray();
+
+    private MockEnvironment environment;
+    private HttpClientFactory httpClientFactory;
+    private DisposableServer server;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        environment = new MockEnvironment()
+                .withProperty("app.http-clients.default.max-connections", "1")
+                .withProperty("app.http-clients.default.pending-acquire-max-count", "10")
+                .withProperty("app.http-clients.default.pending-acquire-timeout", "5s")
+                .withProperty("app.http-clients.default.max-idle-time", "30s")
+                .withProperty("app.http-clients.default.max-life-time", "5m")
+                .withProperty("app.http-clients.default.evict-in-background", "30s")
+                .withProperty("app.http-clients.default.connect-timeout", "5s")
+                .withProperty("app.http-clients.default.read-timeout", "5s")
+                .withProperty("app.http-clients.default.response-timeout", "5s")
+                .withProperty("app.http-clients.default.http2-enabled", "false");
+
+        httpClientFactory = new HttpClientFactory(environment, new SimpleMeterRegistry());
+
+        KeyManagerFactory keyManagerFactory = loadKeyManagerFactory();
+
+        // The server offers h2 and HTTP/1.1 via ALPN, as DocSpace does behind its TLS terminator
+        server = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                .secure(spec -> spec.sslContext(Http2SslContextSpec.forServer(keyManagerFactory)))
+                .handle((request, response) -> response.sendString(Mono.just("OK")))
+                .bindNow();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.disposeNow();
+        httpClientFactory.destroy();
+    }
+
+    @Test
+    public void whenHttp2Enabled_thenH2IsNegotiatedViaAlpn() {
+        environment.setProperty("app.http-clients.docspace.http2-enabled", "true");
+
+        HttpClient httpClient = httpClientFactory.createHttpClient("docspace")
+                .secure(spec -> spec.sslContext(
+                        Http2SslContextSpec.forClient()
+                                .configure(builder -> builder.trustManager(InsecureTrustManagerFactory.INSTANCE))
+                ));
+
+        assertEquals("HTTP/2.0", getVersion(httpClient).text());
+    }
+
+    @Test
+    public void whenHttp2Disabled_thenHttp11IsUsed() {
+        HttpClient httpClient = httpClientFactory.createHttpClient("docspace")
+                .secure(spec -> spec.sslContext(
+                        Http11SslContextSpec.forClient()
+                                .configure(builder -> builder.trustManager(InsecureTrustManagerFactory.INSTANCE))
+                ));
+
+        assertEquals(HttpVersion.HTTP_1_1, getVersion(httpClient));
+    }
+
+    private HttpVersion getVersion(final HttpClient httpClient) {
+        return httpClient.get()
+                .uri("https://localhost:" + server.port() + "/")
+                .responseSingle((response, body) -> body.asString().thenReturn(response.version()))
+                .block(Duration.ofSeconds(10));
+    }
+
+    private KeyManagerFactory loadKeyManagerFactory() throws Exception {
+        // Self-signed certificate for localhost, generated with keytool and valid for 100 years
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream inputStream = getClass().getResourceAsStream("/ssl/localhost.p12")) {
+            keyStore.load(inputStream, KEY_STORE_PASSWORD);
+        }
+
+        KeyManagerFactory keyManagerFactory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, KEY_STORE_PASSWORD);
+
+        return keyManagerFactory;
+    }
+}
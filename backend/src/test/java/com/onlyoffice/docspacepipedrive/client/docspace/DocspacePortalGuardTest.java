@@ -0,0 +1,106 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.docspace;
+
+import com.onlyoffice.docspacepipedrive.exceptions.DocspaceUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class DocspacePortalGuardTest {
+    private static final URI PORTAL_URI = URI.create("https://portal.onlyoffice.io/api/2.0/files/rooms");
+    private static final URI OTHER_PORTAL_URI = URI.create("https://other.onlyoffice.io/api/2.0/files/rooms");
+    private static final int MINIMUM_NUMBER_OF_CALLS = 4;
+
+    private final AtomicInteger exchanges = new AtomicInteger();
+
+    private DocspacePortalGuard docspacePortalGuard;
+
+    @BeforeEach
+    public void setUp() {
+        docspacePortalGuard = new DocspacePortalGuard(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(docspacePortalGuard, "failureRateThreshold", 50f);
+        ReflectionTestUtils.setField(docspacePortalGuard, "slowCallRateThreshold", 100f);
+        ReflectionTestUtils.setField(docspacePortalGuard, "slowCallDurationThreshold", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(docspacePortalGuard, "slidingWindowSize", MINIMUM_NUMBER_OF_CALLS);
+        ReflectionTestUtils.setField(docspacePortalGuard, "minimumNumberOfCalls", MINIMUM_NUMBER_OF_CALLS);
+        ReflectionTestUtils.setField(docspacePortalGuard, "waitDurationInOpenState", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(docspacePortalGuard, "permittedNumberOfCallsInHalfOpenState", 1);
+        ReflectionTestUtils.setField(docspacePortalGuard, "maxConcurrentCalls", 1);
+        ReflectionTestUtils.setField(docspacePortalGuard, "maxWaitDuration", Duration.ZERO);
+        docspacePortalGuard.init();
+    }
+
+    @Test
+    public void whenPortalAnswersWithServerErrors_thenCallsFailFast() {
+        for (int i = 0; i < MINIMUM_NUMBER_OF_CALLS; i++) {
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, call(PORTAL_URI, HttpStatus.SERVICE_UNAVAILABLE).statusCode());
+        }
+
+        assertThrows(DocspaceUnavailableException.class, () -> call(PORTAL_URI, HttpStatus.OK));
+        assertEquals(MINIMUM_NUMBER_OF_CALLS, exchanges.get());
+
+        // Other portals keep their own circuit breaker
+        assertEquals(HttpStatus.OK, call(OTHER_PORTAL_URI, HttpStatus.OK).statusCode());
+    }
+
+    @Test
+    public void whenPortalAnswersWithClientErrors_thenCircuitStaysClosed() {
+        for (int i = 0; i < MINIMUM_NUMBER_OF_CALLS; i++) {
+            call(PORTAL_URI, HttpStatus.NOT_FOUND);
+        }
+
+        assertEquals(HttpStatus.OK, call(PORTAL_URI, HttpStatus.OK).statusCode());
+        assertEquals(MINIMUM_NUMBER_OF_CALLS + 1, exchanges.get());
+    }
+
+    @Test
+    public void whenPortalHasNoFreeCalls_thenCallIsRejected() {
+        Disposable pendingCall = docspacePortalGuard.protect(PORTAL_URI, Mono.never()).subscribe();
+
+        try {
+            assertThrows(DocspaceUnavailableException.class, () -> call(PORTAL_URI, HttpStatus.OK));
+            assertEquals(HttpStatus.OK, call(OTHER_PORTAL_URI, HttpStatus.OK).statusCode());
+        } finally {
+            pendingCall.dispose();
+        }
+    }
+
+    private ClientResponse call(final URI uri, final HttpStatus status) {
+        Mono<ClientResponse> exchange = Mono.fromCallable(() -> {
+            exchanges.incrementAndGet();
+            return ClientResponse.create(status).build();
+        });
+
+        return docspacePortalGuard.protect(uri, exchange).block();
+    }
+}
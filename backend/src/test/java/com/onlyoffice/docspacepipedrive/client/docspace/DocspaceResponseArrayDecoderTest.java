@@ -0,0 +1,165 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.docspace;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceUser;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class DocspaceResponseArrayDecoderTest {
+    private static final int CHUNK_SIZE = 7;
+    private static final UUID FIRST_USER_ID = UUID.fromString("aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaa1");
+    private static final UUID SECOND_USER_ID = UUID.fromString("aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaa2");
+    private static final String RESPONSE = "{\"response\":["
+            + "{\"id\":\"" + FIRST_USER_ID + "\",\"email\":\"first@example.com\",\"groups\":[{\"id\":1}]},"
+            + "{\"id\":\"" + SECOND_USER_ID + "\",\"email\":\"second@example.com\",\"isAdmin\":true}"
+            + "],\"count\":2,\"links\":[{\"href\":\"people\"}],\"total\":250,\"status\":0,\"statusCode\":200}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Test
+    public void whenBodyArrivesInChunks_thenDecodeEveryUserAndTotal() {
+        DocspaceResponseArrayDecoder<DocspaceUser> decoder = new DocspaceResponseArrayDecoder<>(
+                objectMapper,
+                DocspaceUser.class
+        );
+
+        List<DocspaceUser> users = new ArrayList<>();
+
+        byte[] bytes = RESPONSE.getBytes(StandardCharsets.UTF_8);
+        for (int offset = 0; offset < bytes.length; offset += CHUNK_SIZE) {
+            byte[] chunk = Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + CHUNK_SIZE));
+
+            users.addAll(decoder.decode(DefaultDataBufferFactory.sharedInstance.wrap(chunk)));
+        }
+        users.addAll(decoder.endOfInput());
+
+        assertEquals(2, users.size());
+        assertEquals(FIRST_USER_ID, users.get(0).getId());
+        assertEquals("first@example.com", users.get(0).getEmail());
+        assertEquals(SECOND_USER_ID, users.get(1).getId());
+        assertEquals(true, users.get(1).getIsAdmin());
+        assertEquals(250, decoder.getTotal());
+    }
+
+    @Test
+    public void whenProjectionType_thenDecodeOnlyProjectedFields() {
+        DocspaceResponseArrayDecoder<UserId> decoder = new DocspaceResponseArrayDecoder<>(
+                objectMapper,
+                UserId.class
+        );
+
+        List<UserId> userIds = new ArrayList<>(
+                decoder.decode(DefaultDataBufferFactory.sharedInstance.wrap(RESPONSE.getBytes(StandardCharsets.UTF_8)))
+        );
+        userIds.addAll(decoder.endOfInput());
+
+        assertEquals(List.of(new UserId(FIRST_USER_ID), new UserId(SECOND_USER_ID)), userIds);
+    }
+
+    @Test
+    public void whenMultiByteCharactersAreSplitAcrossChunks_thenDecodeThemIntact() {
+        DocspaceResponseArrayDecoder<DocspaceUser> decoder = new DocspaceResponseArrayDecoder<>(
+                objectMapper,
+                DocspaceUser.class
+        );
+
+        String response = "{\"response\":[{\"id\":\"" + FIRST_USER_ID + "\",\"email\":\"josé.müller@exämple.com\"}],"
+                + "\"total\":1}";
+
+        List<DocspaceUser> users = new ArrayList<>();
+        for (byte value : response.getBytes(StandardCharsets.UTF_8)) {
+            users.addAll(decoder.decode(DefaultDataBufferFactory.sharedInstance.wrap(new byte[] {value})));
+        }
+        users.addAll(decoder.endOfInput());
+
+        assertEquals(1, users.size());
+        assertEquals("josé.müller@exämple.com", users.get(0).getEmail());
+        assertEquals(1, decoder.getTotal());
+    }
+
+    @Test
+    public void whenResponseArrayIsEmptyOrNested_thenDecodeNothing() {
+        DocspaceResponseArrayDecoder<UserId> decoder = new DocspaceResponseArrayDecoder<>(
+                objectMapper,
+                UserId.class
+        );
+
+        String response = "{\"links\":[{\"response\":[{\"id\":\"" + FIRST_USER_ID + "\"}]}],"
+                + "\"response\":[],\"total\":0}";
+
+        List<UserId> userIds = new ArrayList<>(
+                decoder.decode(DefaultDataBufferFactory.sharedInstance.wrap(response.getBytes(StandardCharsets.UTF_8)))
+        );
+        userIds.addAll(decoder.endOfInput());
+
+        assertEquals(List.of(), userIds);
+        assertEquals(0, decoder.getTotal());
+    }
+
+    @Test
+    public void whenBodyIsTruncated_thenDecodingExceptionIsThrown() {
+        DocspaceResponseArrayDecoder<UserId> decoder = new DocspaceResponseArrayDecoder<>(
+                objectMapper,
+                UserId.class
+        );
+
+        String response = RESPONSE.substring(0, RESPONSE.indexOf(SECOND_USER_ID.toString()));
+
+        decoder.decode(DefaultDataBufferFactory.sharedInstance.wrap(response.getBytes(StandardCharsets.UTF_8)));
+
+        assertThrows(DecodingException.class, decoder::endOfInput);
+    }
+
+    @Test
+    public void whenChunkIsDecoded_thenBufferIsReleased() {
+        DocspaceResponseArrayDecoder<UserId> decoder = new DocspaceResponseArrayDecoder<>(
+                objectMapper,
+                UserId.class
+        );
+
+        NettyDataBuffer dataBuffer = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT)
+                .wrap(Unpooled.copiedBuffer(RESPONSE, StandardCharsets.UTF_8));
+
+        decoder.decode(dataBuffer);
+
+        assertEquals(0, dataBuffer.getNativeBuffer().refCnt());
+    }
+
+    public record UserId(UUID id) {
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.docspace;
+
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceAccess;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceMembers;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceRoomInvitation;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceRoomInvitationRequest;
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.entity.Settings;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.security.token.UserAuthenticationToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class DocspaceRoomShareAggregatorTest {
+    private static final Long ROOM_ID = 1L;
+    private static final UUID INVALID_INVITEE = UUID.randomUUID();
+
+    private final ReactiveDocspaceClient reactiveDocspaceClient = mock(ReactiveDocspaceClient.class);
+    private final User user = User.builder()
+            .id(1L)
+            .userId(1L)
+            .client(Client.builder()
+                    .id(10000L)
+                    .settings(Settings.builder().url("https://docspace.example.com").build())
+                    .build()
+            )
+            .build();
+
+    private DocspaceRoomShareAggregator docspaceRoomShareAggregator;
+
+    @BeforeEach
+    public void setUp() {
+        when(reactiveDocspaceClient.shareRoom(eq(ROOM_ID), any())).thenAnswer(invocation -> {
+            DocspaceRoomInvitationRequest request = invocation.getArgument(1);
+
+            boolean rejected = request.getInvitations().stream()
+                    .anyMatch(invitation -> invitation.getId().equals(INVALID_INVITEE));
+            if (rejected) {
+                return Mono.error(WebClientResponseException.create(
+                        400,
+                        "Bad Request",
+                        HttpHeaders.EMPTY,
+                        new byte[0],
+                        StandardCharsets.UTF_8
+                ));
+            }
+
+            return Mono.just(new DocspaceMembers());
+        });
+
+        docspaceRoomShareAggregator = new DocspaceRoomShareAggregator(reactiveDocspaceClient);
+        ReflectionTestUtils.setField(docspaceRoomShareAggregator, "window", Duration.ofMillis(50));
+
+        SecurityContextHolder.getContext().setAuthentication(new UserAuthenticationToken(user));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void whenSharesWithinWindow_thenOneRequestIsSent() {
+        Mono<DocspaceMembers> first = docspaceRoomShareAggregator.shareRoom(ROOM_ID, createRequest(false));
+        Mono<DocspaceMembers> second = docspaceRoomShareAggregator.shareRoom(ROOM_ID, createRequest(false));
+
+        assertNotNull(first.block());
+        assertNotNull(second.block());
+
+        verify(reactiveDocspaceClient, times(1)).shareRoom(eq(ROOM_ID), any());
+    }
+
+    @Test
+    public void whenNotifyDiffers_thenRequestsAreNotMerged() {
+        Mono<DocspaceMembers> silent = docspaceRoomShareAggregator.shareRoom(ROOM_ID, createRequest(false));
+        Mono<DocspaceMembers> notified = docspaceRoomShareAggregator.shareRoom(ROOM_ID, createRequest(true));
+
+        assertNotNull(silent.block());
+        assertNotNull(notified.block());
+
+        verify(reactiveDocspaceClient, times(1)).shareRoom(eq(ROOM_ID), argThat(request -> !request.isNotify()));
+        verify(reactiveDocspaceClient, times(1)).shareRoom(eq(ROOM_ID), argThat(request -> request.isNotify()));
+    }
+
+    @Test
+    public void whenMergedRequestRejected_thenOnlyInvalidRequestFails() {
+        Mono<DocspaceMembers> valid = docspaceRoomShareAggregator.shareRoom(ROOM_ID, createRequest(false));
+        Mono<DocspaceMembers> invalid = docspaceRoomShareAggregator.shareRoom(
+                ROOM_ID,
+                createRequest(INVALID_INVITEE, false)
+        );
+
+        assertNotNull(valid.block());
+        assertThrows(WebClientResponseException.class, () -> invalid.block());
+
+        verify(reactiveDocspaceClient, times(3)).shareRoom(eq(ROOM_ID), any());
+    }
+
+    private DocspaceRoomInvitationRequest createRequest(final boolean notify) {
+        return createRequest(UUID.randomUUID(), notify);
+    }
+
+    private DocspaceRoomInvitationRequest createRequest(final UUID invitee, final boolean notify) {
+        return DocspaceRoomInvitationRequest.builder()
+                .invitations(List.of(new DocspaceRoomInvitation(invitee, DocspaceAccess.READ)))
+                .notify(notify)
+                .build();
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.docspace;
+
+import com.onlyoffice.docspacepipedrive.AbstractControllerTest;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.entity.docspaceaccount.DocspaceToken;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuple2;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@TestPropertySource(properties = "app.docspace-reauthentication.lock-enabled=true")
+public class DocspaceTokenManagerTest extends AbstractControllerTest {
+    @Autowired
+    private DocspaceTokenManager docspaceTokenManager;
+
+    @Test
+    public void whenConcurrentUnauthorized_thenLoginOnce() {
+        WIREMOCK_DOCSPACE_SERVER.stubFor(post(urlEqualTo("/api/2.0/authentication"))
+                .atPriority(1)
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"response\":{\"token\":\"docspace_token\"}}")
+                        .withFixedDelay(500)
+                )
+        );
+
+        User user = userService.findById(testUserSalesAdmin.getId());
+        DocspaceToken rejectedToken = user.getDocspaceAccount().getDocspaceToken();
+
+        Tuple2<DocspaceToken, DocspaceToken> tokens = Mono.zip(
+                docspaceTokenManager.reauthenticate(user, rejectedToken).subscribeOn(Schedulers.parallel()),
+                docspaceTokenManager.reauthenticate(user, rejectedToken).subscribeOn(Schedulers.parallel())
+        ).block();
+
+        assertEquals("docspace_token", tokens.getT1().getValue());
+        assertEquals("docspace_token", tokens.getT2().getValue());
+        assertEquals(
+                "docspace_token",
+                docspaceAccountService.findById(user.getId()).getDocspaceToken().getValue()
+        );
+
+        WIREMOCK_DOCSPACE_SERVER.verify(1, postRequestedFor(urlEqualTo("/api/2.0/authentication")));
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.docspace;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceMembers;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceRoomInvitationRequest;
+import com.onlyoffice.docspacepipedrive.client.docspace.dto.DocspaceUser;
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.exceptions.DocspaceWebClientResponseException;
+import com.onlyoffice.docspacepipedrive.security.token.UserAuthenticationToken;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class ReactiveDocspaceClientTest {
+    private static final UUID USER_ID = UUID.fromString("aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaa1");
+
+    @RegisterExtension
+    protected static final WireMockExtension WIREMOCK_DOCSPACE_SERVER = WireMockExtension.newInstance()
+            .options(wireMockConfig().dynamicPort())
+            .build();
+
+    private final DocspaceRoomShareAggregator docspaceRoomShareAggregator = mock(DocspaceRoomShareAggregator.class);
+    private final User user = User.builder()
+            .id(1L)
+            .userId(1L)
+            .client(Client.builder().id(10000L).build())
+            .build();
+
+    // Users the requests were made for, as seen by the exchange filters (DocspaceAuthorizationExchangeFilterFunction)
+    private final List<Object> requestUsers = new CopyOnWriteArrayList<>();
+
+    private ReactiveDocspaceClient reactiveDocspaceClient;
+    private DocspaceClient docspaceClient;
+
+    @BeforeEach
+    public void setUp() {
+        WebClient docspaceWebClient = WebClient.builder()
+                .baseUrl(WIREMOCK_DOCSPACE_SERVER.baseUrl())
+                .filter((request, next) -> {
+                    requestUsers.add(request.attributes().get(User.class.getName()));
+                    return next.exchange(request);
+                })
+                .build();
+
+        ObjectMapper objectMapper = new ObjectMapper()
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+        reactiveDocspaceClient = new ReactiveDocspaceClient(docspaceWebClient, WebClient.create(), objectMapper);
+        ReflectionTestUtils.setField(reactiveDocspaceClient, "findUsersConcurrency", 4);
+
+        docspaceClient = new DocspaceClient(reactiveDocspaceClient, docspaceRoomShareAggregator);
+
+        SecurityContextHolder.getContext().setAuthentication(new UserAuthenticationToken(user));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void whenUserIsRequested_thenResponseIsUnwrappedForCurrentUser() {
+        WIREMOCK_DOCSPACE_SERVER.stubFor(get(urlPathEqualTo("/api/2.0/people/email"))
+                .withQueryParam("email", equalTo("user@example.com"))
+                .willReturn(okJson("{\"response\":{\"id\":\"" + USER_ID + "\",\"email\":\"user@example.com\"},"
+                        + "\"status\":0,\"statusCode\":200}")));
+
+        DocspaceUser docspaceUser = docspaceClient.getUser("user@example.com");
+
+        assertEquals(USER_ID, docspaceUser.getId());
+        assertEquals("user@example.com", docspaceUser.getEmail());
+        assertEquals(List.of(user), requestUsers);
+    }
+
+    @Test
+    public void whenDocspaceRejectsRequest_thenDocspaceWebClientResponseExceptionIsThrown() {
+        WIREMOCK_DOCSPACE_SERVER.stubFor(post(urlPathEqualTo("/api/2.0/files/rooms"))
+                .willReturn(aResponse().withStatus(403)));
+
+        DocspaceWebClientResponseException e = assertThrows(
+                DocspaceWebClientResponseException.class,
+                () -> docspaceClient.createRoom("Deal - Pipedrive (Company)", 2)
+        );
+
+        assertEquals(HttpStatus.FORBIDDEN, e.getStatusCode());
+    }
+
+    @Test
+    public void whenUsersSpanSeveralPages_thenPagesAreFetchedConcurrentlyAndKeptInOrder() {
+        stubUsersPage(0, 0);
+        // The second page is the slowest, its users must still come before the ones of the third page
+        stubUsersPage(100, 500);
+        stubUsersPage(200, 0);
+
+        List<UUID> userIds = docspaceClient.findUsers(2).stream()
+                .map(DocspaceUser::getId)
+                .toList();
+
+        assertEquals(List.of(createUserId(0), createUserId(100), createUserId(200)), userIds);
+        for (int startIndex = 0; startIndex <= 200; startIndex += 100) {
+            WIREMOCK_DOCSPACE_SERVER.verify(1, getRequestedFor(urlPathEqualTo("/api/2.0/people/simple/filter"))
+                    .withQueryParam("employeeType", equalTo("2"))
+                    .withQueryParam("startIndex", equalTo(String.valueOf(startIndex)))
+                    .withQueryParam("count", equalTo("100")));
+        }
+
+        // The third page is requested while the second one is still being answered
+        Map<String, Long> requestedAt = WIREMOCK_DOCSPACE_SERVER.getAllServeEvents().stream()
+                .collect(Collectors.toMap(
+                        serveEvent -> serveEvent.getRequest().queryParameter("startIndex").firstValue(),
+                        serveEvent -> serveEvent.getRequest().getLoggedDate().getTime()
+                ));
+        assertTrue(requestedAt.get("200") - requestedAt.get("100") < 500);
+    }
+
+    @Test
+    public void whenRoomIsShared_thenRequestGoesThroughAggregator() {
+        DocspaceRoomInvitationRequest docspaceRoomInvitationRequest = DocspaceRoomInvitationRequest.builder()
+                .invitations(List.of())
+                .build();
+        DocspaceMembers docspaceMembers = new DocspaceMembers();
+        when(docspaceRoomShareAggregator.shareRoom(10001L, docspaceRoomInvitationRequest))
+                .thenReturn(Mono.just(docspaceMembers));
+
+        assertSame(docspaceMembers, docspaceClient.shareRoom(10001L, docspaceRoomInvitationRequest));
+        verify(docspaceRoomShareAggregator).shareRoom(10001L, docspaceRoomInvitationRequest);
+        assertEquals(List.of(), requestUsers);
+    }
+
+    private void stubUsersPage(final int startIndex, final int delay) {
+        WIREMOCK_DOCSPACE_SERVER.stubFor(get(urlPathEqualTo("/api/2.0/people/simple/filter"))
+                .withQueryParam("startIndex", equalTo(String.valueOf(startIndex)))
+                .willReturn(okJson("{\"response\":[{\"id\":\"" + createUserId(startIndex) + "\"}],"
+                        + "\"count\":1,\"total\":250,\"status\":0,\"statusCode\":200}")
+                        .withFixedDelay(delay)));
+    }
+
+    private UUID createUserId(final int startIndex) {
+        return UUID.fromString(String.format("aaaaaaaa-aaaa-aaaa-aaaa-%012d", startIndex));
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.filter;
+
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import com.onlyoffice.docspacepipedrive.cache.HttpResponseCache;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.absent;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+public class HttpResponseCacheExchangeFilterFunctionTest {
+    private static final String PATH = "/api/2.0/people/aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaa1";
+    private static final String BODY = "{\"response\":{\"email\":\"user@example.com\"}}";
+
+    @RegisterExtension
+    protected static final WireMockExtension WIREMOCK_SERVER = WireMockExtension.newInstance()
+            .options(wireMockConfig().dynamicPort())
+            .build();
+
+    private final User user = User.builder().id(1L).userId(1L).build();
+
+    private WebClient webClient;
+
+    @BeforeEach
+    public void setUp() {
+        HttpResponseCache httpResponseCache = new HttpResponseCache();
+        ReflectionTestUtils.setField(httpResponseCache, "maximumSize", 100L);
+        ReflectionTestUtils.setField(httpResponseCache, "expireAfterWrite", Duration.ofHours(1));
+        httpResponseCache.init();
+
+        webClient = WebClient.builder()
+                .baseUrl(WIREMOCK_SERVER.baseUrl())
+                .filter(new HttpResponseCacheExchangeFilterFunction(httpResponseCache))
+                .build();
+    }
+
+    @Test
+    public void whenResourceIsNotModified_thenCachedBodyIsServedAfterRevalidation() {
+        WIREMOCK_SERVER.stubFor(get(urlEqualTo(PATH))
+                .willReturn(okJson(BODY).withHeader("ETag", "\"v1\"")));
+        WIREMOCK_SERVER.stubFor(get(urlEqualTo(PATH))
+                .withHeader("If-None-Match", equalTo("\"v1\""))
+                .atPriority(1)
+                .willReturn(aResponse().withStatus(304).withHeader("ETag", "\"v1\"")));
+
+        assertEquals(BODY, getCached());
+        assertEquals(BODY, getCached());
+
+        WIREMOCK_SERVER.verify(1, getRequestedFor(urlEqualTo(PATH)).withHeader("If-None-Match", absent()));
+        WIREMOCK_SERVER.verify(1, getRequestedFor(urlEqualTo(PATH)).withHeader("If-None-Match", equalTo("\"v1\"")));
+    }
+
+    @Test
+    public void whenResponseIsFresh_thenItIsServedWithoutRequest() {
+        WIREMOCK_SERVER.stubFor(get(urlEqualTo(PATH))
+                .willReturn(okJson(BODY).withHeader("Cache-Control", "private, max-age=60")));
+
+        assertEquals(BODY, getCached());
+        assertEquals(BODY, getCached());
+
+        WIREMOCK_SERVER.verify(1, getRequestedFor(urlEqualTo(PATH)));
+    }
+
+    @Test
+    public void whenUserSendsWrite_thenCachedResponsesOfUserAreInvalidated() {
+        WIREMOCK_SERVER.stubFor(get(urlEqualTo(PATH))
+                .willReturn(okJson(BODY).withHeader("Cache-Control", "private, max-age=60")));
+        WIREMOCK_SERVER.stubFor(post(urlEqualTo("/api/2.0/group"))
+                .willReturn(okJson("{}")));
+
+        getCached();
+
+        webClient.post()
+                .uri("/api/2.0/group")
+                .attribute(User.class.getName(), user)
+                .retrieve()
+                .toBodilessEntity()
+                .block();
+
+        getCached();
+
+        WIREMOCK_SERVER.verify(2, getRequestedFor(urlEqualTo(PATH)).withHeader("If-None-Match", absent()));
+    }
+
+    @Test
+    public void whenRequestIsNotOptedIn_thenItIsNotCached() {
+        WIREMOCK_SERVER.stubFor(get(urlEqualTo(PATH))
+                .willReturn(okJson(BODY).withHeader("Cache-Control", "private, max-age=60")));
+
+        for (int i = 0; i < 2; i++) {
+            webClient.get()
+                    .uri(PATH)
+                    .retrieve()
+                    .bodyToMono(String.class)
+                    .block();
+        }
+
+        WIREMOCK_SERVER.verify(2, getRequestedFor(urlEqualTo(PATH)));
+    }
+
+    private String getCached() {
+        return webClient.get()
+                .uri(PATH)
+                .attributes(HttpResponseCacheExchangeFilterFunction.cacheFor(user))
+                .retrieve()
+                .bodyToMono(String.class)
+                .block();
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+
+public class HttpRetryExchangeFilterFunctionTest {
+    private static final String SHARE_URL = "https://docspace.example.com/api/2.0/files/rooms/1/share";
+    private static final String ROOM_URL = "https://docspace.example.com/api/2.0/files/rooms/1";
+
+    private final AtomicInteger exchanges = new AtomicInteger();
+    private final ExchangeFunction unavailable = request -> Mono.fromSupplier(() -> {
+        exchanges.incrementAndGet();
+        return ClientResponse.create(HttpStatus.SERVICE_UNAVAILABLE).build();
+    });
+
+    @Test
+    public void whenServiceUnavailable_thenIdempotentRequestIsRetried() {
+        ClientResponse clientResponse = createFilter(new HttpRetryBudget(0.2, 1, 20))
+                .filter(createRequest(HttpMethod.GET, ROOM_URL), unavailable)
+                .block();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, clientResponse.statusCode());
+        assertEquals(3, exchanges.get());
+    }
+
+    @Test
+    public void whenServiceUnavailable_thenPostIsNotRetried() {
+        createFilter(new HttpRetryBudget(0.2, 1, 20))
+                .filter(createRequest(HttpMethod.POST, ROOM_URL), unavailable)
+                .block();
+
+        assertEquals(1, exchanges.get());
+    }
+
+    @Test
+    public void whenServiceUnavailable_thenRoomShareIsNotRetried() {
+        createFilter(new HttpRetryBudget(0.2, 1, 20))
+                .filter(createRequest(HttpMethod.PUT, SHARE_URL), unavailable)
+                .block();
+
+        assertEquals(1, exchanges.get());
+    }
+
+    @Test
+    public void whenRetryBudgetExhausted_thenRequestIsNotRetried() {
+        createFilter(new HttpRetryBudget(0, 0, 0))
+                .filter(createRequest(HttpMethod.GET, ROOM_URL), unavailable)
+                .block();
+
+        assertEquals(1, exchanges.get());
+    }
+
+    private HttpRetryExchangeFilterFunction createFilter(final HttpRetryBudget httpRetryBudget) {
+        return new HttpRetryExchangeFilterFunction(
+                "docspace",
+                3,
+                Duration.ofMillis(1),
+                Duration.ofMillis(10),
+                Map.of("/**/api/2.0/files/rooms/*/share", 1),
+                httpRetryBudget,
+                new SimpleMeterRegistry()
+        );
+    }
+
+    private ClientRequest createRequest(final HttpMethod method, final String url) {
+        return ClientRequest.create(method, URI.create(url)).build();
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.pipedrive;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class PipedriveRateLimiterTest {
+    private static final Long CLIENT_ID = 10000L;
+    private static final Long OTHER_CLIENT_ID = 10001L;
+    private static final Duration MAX_DELAY = Duration.ofMillis(300);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PipedriveRateLimiter pipedriveRateLimiter;
+
+    @BeforeEach
+    public void setUp() {
+        pipedriveRateLimiter = new PipedriveRateLimiter(meterRegistry);
+        ReflectionTestUtils.setField(pipedriveRateLimiter, "backgroundReserve", 0.2);
+        ReflectionTestUtils.setField(pipedriveRateLimiter, "maxDelay", MAX_DELAY);
+    }
+
+    @Test
+    public void whenBudgetIsWithinBackgroundReserve_thenOnlyInteractiveCallsGoThrough() {
+        // 2 of 10 calls are left, which is the reserve kept for interactive calls
+        schedule(CLIENT_ID, true, rateLimitedResponse(10, 2, 60));
+
+        schedule(CLIENT_ID, true, ClientResponse.create(HttpStatus.OK).build());
+        assertEquals(0, getDelayed("interactive"));
+
+        assertTrue(elapsedMillis(CLIENT_ID, false) >= MAX_DELAY.toMillis());
+        assertTrue(getDelayed("background") > 0);
+    }
+
+    @Test
+    public void whenBudgetIsAboveBackgroundReserve_thenBackgroundCallsGoThrough() {
+        schedule(CLIENT_ID, true, rateLimitedResponse(10, 5, 60));
+
+        schedule(CLIENT_ID, false, ClientResponse.create(HttpStatus.OK).build());
+
+        assertEquals(0, getDelayed("background"));
+    }
+
+    @Test
+    public void whenPipedriveAnswersTooManyRequests_thenInteractiveCallsWaitAsWell() {
+        schedule(CLIENT_ID, true, ClientResponse.create(HttpStatus.TOO_MANY_REQUESTS)
+                .header("Retry-After", "60")
+                .build());
+
+        assertTrue(elapsedMillis(CLIENT_ID, true) >= MAX_DELAY.toMillis());
+        assertTrue(getDelayed("interactive") > 0);
+    }
+
+    @Test
+    public void whenBudgetOfOneClientIsExhausted_thenOtherClientsAreNotDelayed() {
+        schedule(CLIENT_ID, true, rateLimitedResponse(10, 0, 60));
+
+        schedule(OTHER_CLIENT_ID, false, ClientResponse.create(HttpStatus.OK).build());
+
+        assertEquals(0, getDelayed("background"));
+    }
+
+    private long elapsedMillis(final Long clientId, final boolean interactive) {
+        Instant start = Instant.now();
+        schedule(clientId, interactive, ClientResponse.create(HttpStatus.OK).build());
+
+        return Duration.between(start, Instant.now()).toMillis();
+    }
+
+    private ClientResponse schedule(final Long clientId, final boolean interactive,
+                                    final ClientResponse clientResponse) {
+        return pipedriveRateLimiter.schedule(clientId, interactive, Mono.just(clientResponse)).block();
+    }
+
+    private ClientResponse rateLimitedResponse(final int limit, final int remaining, final int reset) {
+        return ClientResponse.create(HttpStatus.OK)
+                .header("X-RateLimit-Limit", String.valueOf(limit))
+                .header("X-RateLimit-Remaining", String.valueOf(remaining))
+                .header("X-RateLimit-Reset", String.valueOf(reset))
+                .build();
+    }
+
+    private double getDelayed(final String priority) {
+        return meterRegistry.counter("pipedrive.ratelimit.delayed", "priority", priority).count();
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.client.pipedrive.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PipedriveDealTest {
+    @Test
+    public void whenUpdateTime_thenParsedAsDateTime() {
+        PipedriveDeal pipedriveDeal = new PipedriveDeal();
+        pipedriveDeal.setUpdateTime("2024-03-09 07:05:01");
+
+        assertEquals(LocalDateTime.of(2024, 3, 9, 7, 5, 1), pipedriveDeal.getUpdateDateTime());
+    }
+
+    @Test
+    public void whenNoUpdateTime_thenNoDateTime() {
+        assertNull(new PipedriveDeal().getUpdateDateTime());
+    }
+
+    @Test
+    public void whenLogTimeLaterThanUpdateTime_thenLogDateTimeIsAfter() {
+        PipedriveDeal pipedriveDeal = new PipedriveDeal();
+        pipedriveDeal.setUpdateTime("2024-03-09 23:59:59");
+
+        PipedriveDealFollowerEvent.Data data = new PipedriveDealFollowerEvent.Data();
+        data.setLogTime("2024-03-10 00:00:00");
+
+        assertTrue(data.getLogDateTime().isAfter(pipedriveDeal.getUpdateDateTime()));
+    }
+}
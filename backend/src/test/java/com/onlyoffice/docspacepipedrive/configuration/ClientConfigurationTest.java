@@ -0,0 +1,206 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.configuration;
+
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import com.onlyoffice.docspacepipedrive.client.HttpClientFactory;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AuthorizationCodeGrantRequest;
+import org.springframework.security.oauth2.client.endpoint.OAuth2RefreshTokenGrantRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthorizationException;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AccessTokenResponse;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationExchange;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationResponse;
+import org.springframework.web.client.RestTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class ClientConfigurationTest {
+    private static final String CLIENT_ID = "client-id";
+    private static final String CLIENT_SECRET = "client-secret";
+    private static final String REDIRECT_URI = "http://localhost:8080/login/oauth2/code/pipedrive";
+
+    @RegisterExtension
+    protected static final WireMockExtension WIREMOCK_OAUTH_SERVER = WireMockExtension.newInstance()
+            .options(wireMockConfig().dynamicPort())
+            .build();
+
+    private final ClientConfiguration clientConfiguration = new ClientConfiguration();
+
+    private HttpClientFactory httpClientFactory;
+    private ClientRegistration clientRegistration;
+    private OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest> authorizationCodeTokenResponseClient;
+    private OAuth2AccessTokenResponseClient<OAuth2RefreshTokenGrantRequest> refreshTokenTokenResponseClient;
+
+    @BeforeEach
+    public void setUp() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("app.http-clients.default.max-connections", "1")
+                .withProperty("app.http-clients.default.pending-acquire-max-count", "10")
+                .withProperty("app.http-clients.default.pending-acquire-timeout", "5s")
+                .withProperty("app.http-clients.default.max-idle-time", "30s")
+                .withProperty("app.http-clients.default.max-life-time", "5m")
+                .withProperty("app.http-clients.default.evict-in-background", "30s")
+                .withProperty("app.http-clients.default.connect-timeout", "5s")
+                .withProperty("app.http-clients.default.read-timeout", "5s")
+                .withProperty("app.http-clients.default.response-timeout", "5s")
+                .withProperty("app.http-clients.default.http2-enabled", "false");
+
+        httpClientFactory = new HttpClientFactory(environment, new SimpleMeterRegistry());
+
+        RestTemplate oauthRestTemplate = clientConfiguration.oauthRestTemplate(httpClientFactory);
+        authorizationCodeTokenResponseClient =
+                clientConfiguration.authorizationCodeTokenResponseClient(oauthRestTemplate);
+        refreshTokenTokenResponseClient = clientConfiguration.refreshTokenTokenResponseClient(oauthRestTemplate);
+
+        clientRegistration = ClientRegistration.withRegistrationId("pipedrive")
+                .clientId(CLIENT_ID)
+                .clientSecret(CLIENT_SECRET)
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .redirectUri(REDIRECT_URI)
+                .authorizationUri(WIREMOCK_OAUTH_SERVER.baseUrl() + "/oauth/authorize")
+                .tokenUri(WIREMOCK_OAUTH_SERVER.baseUrl() + "/oauth/token")
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        httpClientFactory.destroy();
+    }
+
+    @Test
+    public void whenAuthorizationCodeIsExchanged_thenTokenResponseIsRead() {
+        WIREMOCK_OAUTH_SERVER.stubFor(post(urlEqualTo("/oauth/token"))
+                .withRequestBody(containing("grant_type=authorization_code"))
+                .withRequestBody(containing("code=code"))
+                .willReturn(tokenResponse("access-token", "refresh-token")));
+
+        OAuth2AuthorizationRequest authorizationRequest = OAuth2AuthorizationRequest.authorizationCode()
+                .authorizationUri(clientRegistration.getProviderDetails().getAuthorizationUri())
+                .clientId(CLIENT_ID)
+                .redirectUri(REDIRECT_URI)
+                .state("state")
+                .build();
+        OAuth2AuthorizationResponse authorizationResponse = OAuth2AuthorizationResponse.success("code")
+                .redirectUri(REDIRECT_URI)
+                .state("state")
+                .build();
+
+        OAuth2AccessTokenResponse response = authorizationCodeTokenResponseClient.getTokenResponse(
+                new OAuth2AuthorizationCodeGrantRequest(
+                        clientRegistration,
+                        new OAuth2AuthorizationExchange(authorizationRequest, authorizationResponse)
+                )
+        );
+
+        assertEquals("access-token", response.getAccessToken().getTokenValue());
+        assertEquals("refresh-token", response.getRefreshToken().getTokenValue());
+
+        WIREMOCK_OAUTH_SERVER.verify(1, postRequestedFor(urlEqualTo("/oauth/token"))
+                .withHeader("Authorization", equalTo(basicAuthorization()))
+                .withHeader("Content-Type", containing("application/x-www-form-urlencoded")));
+    }
+
+    @Test
+    public void whenTokenIsRefreshed_thenTokenResponseIsRead() {
+        WIREMOCK_OAUTH_SERVER.stubFor(post(urlEqualTo("/oauth/token"))
+                .withRequestBody(containing("grant_type=refresh_token"))
+                .withRequestBody(containing("refresh_token=refresh-token"))
+                .willReturn(tokenResponse("renewed-access-token", "renewed-refresh-token")));
+
+        OAuth2AccessTokenResponse response = refreshTokenTokenResponseClient.getTokenResponse(
+                createRefreshTokenGrantRequest()
+        );
+
+        assertEquals("renewed-access-token", response.getAccessToken().getTokenValue());
+        assertEquals("renewed-refresh-token", response.getRefreshToken().getTokenValue());
+
+        WIREMOCK_OAUTH_SERVER.verify(1, postRequestedFor(urlEqualTo("/oauth/token"))
+                .withHeader("Authorization", equalTo(basicAuthorization())));
+    }
+
+    @Test
+    public void whenRefreshTokenIsRejected_thenOAuth2ErrorIsThrown() {
+        WIREMOCK_OAUTH_SERVER.stubFor(post(urlEqualTo("/oauth/token"))
+                .willReturn(aResponse()
+                        .withStatus(400)
+                        .withHeader("Content-Type", "application/json")
+                        .withBody("{\"error\":\"invalid_grant\",\"error_description\":\"Invalid refresh token\"}")));
+
+        OAuth2AuthorizationException e = assertThrows(
+                OAuth2AuthorizationException.class,
+                () -> refreshTokenTokenResponseClient.getTokenResponse(createRefreshTokenGrantRequest())
+        );
+
+        assertEquals("invalid_grant", e.getError().getErrorCode());
+    }
+
+    private OAuth2RefreshTokenGrantRequest createRefreshTokenGrantRequest() {
+        Instant issuedAt = Instant.now().minusSeconds(3600);
+
+        return new OAuth2RefreshTokenGrantRequest(
+                clientRegistration,
+                new OAuth2AccessToken(
+                        OAuth2AccessToken.TokenType.BEARER,
+                        "access-token",
+                        issuedAt,
+                        issuedAt.plusSeconds(3599)
+                ),
+                new OAuth2RefreshToken("refresh-token", issuedAt)
+        );
+    }
+
+    private ResponseDefinitionBuilder tokenResponse(final String accessToken, final String refreshToken) {
+        return aResponse()
+                .withHeader("Content-Type", "application/json")
+                .withBody("{\"access_token\":\"" + accessToken + "\",\"token_type\":\"bearer\","
+                        + "\"expires_in\":3599,\"refresh_token\":\"" + refreshToken + "\"}");
+    }
+
+    private String basicAuthorization() {
+        return "Basic " + Base64.getEncoder().encodeToString(
+                (CLIENT_ID + ":" + CLIENT_SECRET).getBytes(StandardCharsets.UTF_8)
+        );
+    }
+}
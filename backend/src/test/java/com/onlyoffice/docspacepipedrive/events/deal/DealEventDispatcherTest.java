@@ -0,0 +1,129 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.events.deal;
+
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.security.util.SecurityUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class DealEventDispatcherTest {
+    private final User user = User.builder()
+            .id(1L)
+            .userId(1L)
+            .client(Client.builder().id(10000L).build())
+            .build();
+
+    private DealEventDispatcher dealEventDispatcher;
+
+    @AfterEach
+    public void tearDown() {
+        dealEventDispatcher.destroy();
+    }
+
+    @Test
+    public void whenEventsOfOneDealAreDispatched_thenTheyRunInOrderAsTheUser() {
+        createDealEventDispatcher(4, 100);
+
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        List<User> users = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+
+        for (int i = 0; i < 50; i++) {
+            int event = i;
+            results.add(dealEventDispatcher.dispatch(user, 4L, () -> {
+                users.add(SecurityUtils.getCurrentUser());
+                handled.add(event);
+            }));
+        }
+
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+
+        assertEquals(IntStream.range(0, 50).boxed().collect(Collectors.toList()), handled);
+        assertTrue(users.stream().allMatch(user::equals));
+    }
+
+    @Test
+    public void whenLaneQueueIsFull_thenFailedFutureIsReturned() throws Exception {
+        createDealEventDispatcher(1, 1);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Void> running = dealEventDispatcher.dispatch(user, 4L, () -> {
+            started.countDown();
+            awaitUninterruptibly(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<Void> queued = dealEventDispatcher.dispatch(user, 4L, () -> { });
+
+        // The lane thread is busy and its queue is full, the event is rejected without throwing at the caller
+        CompletableFuture<Void> rejected = assertDoesNotThrow(() -> dealEventDispatcher.dispatch(user, 4L, () -> { }));
+
+        assertTrue(rejected.isCompletedExceptionally());
+        ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        assertFalse(queued.isCompletedExceptionally());
+    }
+
+    private void createDealEventDispatcher(final int lanes, final int queueDepth) {
+        dealEventDispatcher = new DealEventDispatcher(new SimpleMeterRegistry());
+
+        ReflectionTestUtils.setField(dealEventDispatcher, "lanesCount", lanes);
+        ReflectionTestUtils.setField(dealEventDispatcher, "queueDepth", queueDepth);
+        ReflectionTestUtils.setField(dealEventDispatcher, "virtualThreadsEnabled", false);
+
+        dealEventDispatcher.init();
+    }
+
+    private void awaitUninterruptibly(final CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.events.deal;
+
+import com.onlyoffice.docspacepipedrive.TestUtils;
+import com.onlyoffice.docspacepipedrive.cache.PipedriveAdvancedPermissionsCache;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.PipedriveClient;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDeal;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDealFollower;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDealFollowerEvent;
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.entity.DocspaceAccount;
+import com.onlyoffice.docspacepipedrive.entity.Room;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.manager.DocspaceActionManager;
+import com.onlyoffice.docspacepipedrive.security.token.UserAuthenticationToken;
+import com.onlyoffice.docspacepipedrive.service.RoomService;
+import com.onlyoffice.docspacepipedrive.service.UserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class DealEventListenerTest {
+    private static final Long CLIENT_ID = 10000L;
+    private static final Long DEAL_ID = 4L;
+    private static final Long ROOM_ID = 10001L;
+
+    private final DocspaceActionManager docspaceActionManager = mock(DocspaceActionManager.class);
+    private final PipedriveClient pipedriveClient = mock(PipedriveClient.class);
+    private final UserService userService = mock(UserService.class);
+    private final RoomService roomService = mock(RoomService.class);
+    private final User user = User.builder()
+            .id(1L)
+            .userId(1L)
+            .client(Client.builder().id(CLIENT_ID).build())
+            .build();
+    private final Map<Long, DocspaceAccount> docspaceAccounts = new HashMap<>();
+
+    private DealEventListener dealEventListener;
+
+    @BeforeEach
+    public void setUp() {
+        dealEventListener = new DealEventListener(
+                docspaceActionManager,
+                pipedriveClient,
+                mock(PipedriveAdvancedPermissionsCache.class),
+                userService,
+                roomService
+        );
+
+        for (long userId = 1; userId <= 3; userId++) {
+            DocspaceAccount docspaceAccount = TestUtils.createDocspaceAccount(userId);
+            docspaceAccounts.put(userId, docspaceAccount);
+
+            when(userService.findByClientIdAndUserId(CLIENT_ID, userId)).thenReturn(
+                    User.builder().userId(userId).docspaceAccount(docspaceAccount).build()
+            );
+        }
+
+        when(pipedriveClient.getDealFollowers(DEAL_ID)).thenReturn(List.of(createFollower(2L), createFollower(3L)));
+
+        SecurityContextHolder.getContext().setAuthentication(new UserAuthenticationToken(user));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void whenSnapshotIsStored_thenFollowersAreDiffedAgainstIt() {
+        when(roomService.findByClientIdAndDealId(CLIENT_ID, DEAL_ID)).thenReturn(Room.builder()
+                .roomId(ROOM_ID)
+                .dealId(DEAL_ID)
+                .followers(new HashSet<>(Set.of(1L, 2L)))
+                .followersSyncedAt(Instant.now())
+                .build());
+
+        dealEventListener.listen(new ReconcileFollowersForPipedriveDealEvent(
+                this,
+                createDeal("2024-10-20 10:00:00"),
+                createDeal("2024-10-20 11:00:00")
+        ));
+
+        verify(docspaceActionManager).inviteListDocspaceAccountsToRoom(ROOM_ID, List.of(docspaceAccounts.get(3L)));
+        verify(docspaceActionManager).removeListDocspaceAccountsFromRoom(ROOM_ID, List.of(docspaceAccounts.get(1L)));
+        verify(roomService).saveFollowers(CLIENT_ID, DEAL_ID, Set.of(2L, 3L));
+        verify(pipedriveClient, never()).getDealFollowersFlow(anyLong(), any());
+    }
+
+    @Test
+    public void whenSnapshotIsMissing_thenDealFlowIsUsedAndSnapshotIsStored() {
+        when(roomService.findByClientIdAndDealId(CLIENT_ID, DEAL_ID)).thenReturn(Room.builder()
+                .roomId(ROOM_ID)
+                .dealId(DEAL_ID)
+                .build());
+        when(pipedriveClient.getDealFollowersFlow(DEAL_ID, LocalDateTime.of(2024, 10, 20, 10, 0))).thenReturn(List.of(
+                createFollowerEvent(3, "removed", 1L, "2024-10-20 10:45:00"),
+                createFollowerEvent(2, "added", 3L, "2024-10-20 10:30:00"),
+                // Older than the previous deal update, already handled
+                createFollowerEvent(1, "added", 1L, "2024-10-20 09:00:00")
+        ));
+
+        dealEventListener.listen(new ReconcileFollowersForPipedriveDealEvent(
+                this,
+                createDeal("2024-10-20 10:00:00"),
+                createDeal("2024-10-20 11:00:00")
+        ));
+
+        verify(docspaceActionManager).inviteListDocspaceAccountsToRoom(ROOM_ID, List.of(docspaceAccounts.get(3L)));
+        verify(docspaceActionManager).removeListDocspaceAccountsFromRoom(ROOM_ID, List.of(docspaceAccounts.get(1L)));
+        verify(roomService).saveFollowers(CLIENT_ID, DEAL_ID, Set.of(2L, 3L));
+    }
+
+    private PipedriveDeal createDeal(final String updateTime) {
+        PipedriveDeal pipedriveDeal = new PipedriveDeal();
+        pipedriveDeal.setId(DEAL_ID);
+        pipedriveDeal.setUpdateTime(updateTime);
+
+        return pipedriveDeal;
+    }
+
+    private PipedriveDealFollower createFollower(final Long userId) {
+        PipedriveDealFollower pipedriveDealFollower = new PipedriveDealFollower();
+        pipedriveDealFollower.setUserId(userId);
+
+        return pipedriveDealFollower;
+    }
+
+    private PipedriveDealFollowerEvent createFollowerEvent(final Integer id, final String action,
+                                                           final Long followerUserId, final String logTime) {
+        PipedriveDealFollowerEvent.Data data = new PipedriveDealFollowerEvent.Data();
+        data.setId(id);
+        data.setAction(action);
+        data.setFollowerUserId(followerUserId);
+        data.setLogTime(logTime);
+
+        PipedriveDealFollowerEvent pipedriveDealFollowerEvent = new PipedriveDealFollowerEvent();
+        pipedriveDealFollowerEvent.setData(data);
+
+        return pipedriveDealFollowerEvent;
+    }
+}
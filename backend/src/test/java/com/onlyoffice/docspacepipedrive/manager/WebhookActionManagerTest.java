@@ -0,0 +1,122 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.manager;
+
+import com.onlyoffice.docspacepipedrive.cache.PipedriveAdvancedPermissionsCache;
+import com.onlyoffice.docspacepipedrive.client.pipedrive.dto.PipedriveDeal;
+import com.onlyoffice.docspacepipedrive.entity.Client;
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.events.deal.AddVisibleEveryoneForPipedriveDealEvent;
+import com.onlyoffice.docspacepipedrive.events.deal.ReconcileFollowersForPipedriveDealEvent;
+import com.onlyoffice.docspacepipedrive.security.token.UserAuthenticationToken;
+import com.onlyoffice.docspacepipedrive.service.ClientService;
+import com.onlyoffice.docspacepipedrive.service.RoomService;
+import com.onlyoffice.docspacepipedrive.web.dto.webhook.WebhookRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+
+public class WebhookActionManagerTest {
+    private static final int VISIBLE_TO_OWNER = 1;
+
+    private final RoomService roomService = mock(RoomService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final User user = User.builder()
+            .id(1L)
+            .userId(1L)
+            .client(Client.builder().id(10000L).build())
+            .build();
+
+    private WebhookActionManager webhookActionManager;
+
+    @BeforeEach
+    public void setUp() {
+        webhookActionManager = new WebhookActionManager(
+                mock(PipedriveAdvancedPermissionsCache.class),
+                roomService,
+                mock(ClientService.class),
+                mock(PipedriveActionManager.class),
+                eventPublisher
+        );
+
+        SecurityContextHolder.getContext().setAuthentication(new UserAuthenticationToken(user));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void whenNoPreviousDeal_thenNothingIsPublished() {
+        webhookActionManager.processUpdatedDeals(List.of(
+                createRequest(null, createDeal(VISIBLE_TO_OWNER, 1))
+        ));
+
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void whenFirstRequestHasNoPreviousDeal_thenLaterRequestsAreCompared() {
+        webhookActionManager.processUpdatedDeals(List.of(
+                createRequest(null, createDeal(VISIBLE_TO_OWNER, 1)),
+                createRequest(createDeal(VISIBLE_TO_OWNER, 1), createDeal(VISIBLE_TO_OWNER, 2))
+        ));
+
+        verify(eventPublisher, times(1)).publishEvent(isA(ReconcileFollowersForPipedriveDealEvent.class));
+    }
+
+    @Test
+    public void whenVisibilityChangedWithinBurst_thenComparedFromEarliestPreviousToLatestCurrent() {
+        int visibleToEveryone = PipedriveDeal.VisibleTo.EVERYONE.integer();
+
+        webhookActionManager.processUpdatedDeals(List.of(
+                createRequest(createDeal(VISIBLE_TO_OWNER, 1), createDeal(visibleToEveryone, 1)),
+                createRequest(createDeal(visibleToEveryone, 1), createDeal(visibleToEveryone, 1))
+        ));
+
+        verify(eventPublisher, times(1)).publishEvent(isA(AddVisibleEveryoneForPipedriveDealEvent.class));
+        verify(eventPublisher, never()).publishEvent(isA(ReconcileFollowersForPipedriveDealEvent.class));
+    }
+
+    private WebhookRequest<PipedriveDeal> createRequest(final PipedriveDeal previous, final PipedriveDeal current) {
+        return new WebhookRequest<>(null, current, previous);
+    }
+
+    private PipedriveDeal createDeal(final int visibleTo, final int followersCount) {
+        PipedriveDeal pipedriveDeal = new PipedriveDeal();
+        pipedriveDeal.setId(1L);
+        pipedriveDeal.setVisibleTo(visibleTo);
+        pipedriveDeal.setFollowersCount(followersCount);
+
+        return pipedriveDeal;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.security.provider;
+
+import com.onlyoffice.docspacepipedrive.entity.User;
+import com.onlyoffice.docspacepipedrive.entity.Webhook;
+import com.onlyoffice.docspacepipedrive.events.webhook.WebhookDeletedEvent;
+import com.onlyoffice.docspacepipedrive.service.WebhookService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+@Slf4j
+public class WebhookAuthenticationProviderTest {
+    private static final int DELIVERIES = 20;
+    private static final String PASSWORD = "3KxVbF8pQz2mNw7RtYc5LhJd9GsAe4Uo";
+
+    private final WebhookService webhookService = mock(WebhookService.class);
+    private final PasswordEncoder passwordEncoder = spy(new BCryptPasswordEncoder(12));
+    private final User user = User.builder().id(1L).userId(1L).build();
+    private final Webhook webhook = Webhook.builder()
+            .id(UUID.randomUUID())
+            .user(user)
+            .build();
+
+    private WebhookAuthenticationProvider webhookAuthenticationProvider;
+
+    @BeforeEach
+    public void setUp() {
+        webhook.setPassword(passwordEncoder.encode(PASSWORD));
+        when(webhookService.findById(webhook.getId())).thenReturn(webhook);
+
+        webhookAuthenticationProvider = new WebhookAuthenticationProvider(webhookService, passwordEncoder);
+        ReflectionTestUtils.setField(webhookAuthenticationProvider, "maximumSize", 100L);
+        ReflectionTestUtils.setField(webhookAuthenticationProvider, "expireAfterWrite", Duration.ofHours(1));
+        webhookAuthenticationProvider.init();
+    }
+
+    @Test
+    public void whenRepeatedDeliveries_thenSecretIsVerifiedOnce() {
+        for (int i = 0; i < DELIVERIES; i++) {
+            Authentication authentication = webhookAuthenticationProvider.authenticate(createAuthentication(PASSWORD));
+
+            assertEquals(user, authentication.getPrincipal());
+        }
+
+        verify(passwordEncoder, times(1)).matches(anyString(), anyString());
+    }
+
+    // Measures the per-delivery cost before (BCrypt on every delivery) and after (cached verification),
+    // it only logs the numbers, so a loaded runner can not fail it
+    @Test
+    @Tag("benchmark")
+    public void benchmarkRepeatedDeliveries() {
+        long uncachedCost = 0;
+        for (int i = 0; i < DELIVERIES; i++) {
+            long start = System.nanoTime();
+            passwordEncoder.matches(PASSWORD, webhook.getPassword());
+            uncachedCost += System.nanoTime() - start;
+        }
+
+        long cachedCost = 0;
+        for (int i = 0; i < DELIVERIES; i++) {
+            long start = System.nanoTime();
+            webhookAuthenticationProvider.authenticate(createAuthentication(PASSWORD));
+            cachedCost += System.nanoTime() - start;
+        }
+
+        log.info("Per-delivery authentication cost: {}us with BCrypt, {}us with cached verification",
+                uncachedCost / DELIVERIES / 1000,
+                cachedCost / DELIVERIES / 1000
+        );
+    }
+
+    @Test
+    public void whenWrongSecret_thenThrowBadCredentials() {
+        webhookAuthenticationProvider.authenticate(createAuthentication(PASSWORD));
+
+        assertThrows(BadCredentialsException.class, () -> {
+            webhookAuthenticationProvider.authenticate(createAuthentication("wrong-password"));
+        });
+    }
+
+    @Test
+    public void whenWebhookDeleted_thenSecretIsVerifiedAgain() {
+        webhookAuthenticationProvider.authenticate(createAuthentication(PASSWORD));
+        webhookAuthenticationProvider.listen(new WebhookDeletedEvent(this, webhook.getId()));
+        webhookAuthenticationProvider.authenticate(createAuthentication(PASSWORD));
+
+        verify(passwordEncoder, times(2)).matches(anyString(), anyString());
+    }
+
+    @Test
+    public void whenWebhookPasswordChanged_thenSecretIsVerifiedAgain() {
+        webhookAuthenticationProvider.authenticate(createAuthentication(PASSWORD));
+        webhook.setPassword(passwordEncoder.encode("new-password"));
+
+        assertThrows(BadCredentialsException.class, () -> {
+            webhookAuthenticationProvider.authenticate(createAuthentication(PASSWORD));
+        });
+    }
+
+    private Authentication createAuthentication(final String password) {
+        return new UsernamePasswordAuthenticationToken(webhook.getId().toString(), password);
+    }
+}
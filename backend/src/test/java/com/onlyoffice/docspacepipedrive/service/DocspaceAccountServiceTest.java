@@ -0,0 +1,90 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.service;
+
+import com.onlyoffice.docspacepipedrive.AbstractControllerTest;
+import com.onlyoffice.docspacepipedrive.entity.DocspaceAccount;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestPropertySource(properties = "app.docspace-token-refresh.enabled=false")
+public class DocspaceAccountServiceTest extends AbstractControllerTest {
+    private static final Duration CLAIM_TIMEOUT = Duration.ofMinutes(10);
+
+    @Test
+    public void whenTokenRefreshClaimed_thenOtherPollSkipsAccount() {
+        Instant issuedBefore = Instant.now().plus(Duration.ofHours(1));
+
+        List<DocspaceAccount> docspaceAccounts = docspaceAccountService.claimAllWithTokenIssuedBefore(
+                issuedBefore,
+                false,
+                10,
+                CLAIM_TIMEOUT
+        );
+        assertEquals(List.of(testUserSalesAdmin.getId()), getIds(docspaceAccounts));
+
+        docspaceAccounts = docspaceAccountService.claimAllWithTokenIssuedBefore(
+                issuedBefore,
+                false,
+                10,
+                CLAIM_TIMEOUT
+        );
+        assertTrue(docspaceAccounts.isEmpty());
+    }
+
+    @Test
+    public void whenTokenRefreshClaimExpired_thenAccountIsClaimedAgain() {
+        Instant issuedBefore = Instant.now().plus(Duration.ofHours(1));
+
+        docspaceAccountService.claimAllWithTokenIssuedBefore(issuedBefore, false, 10, Duration.ZERO);
+
+        List<DocspaceAccount> docspaceAccounts = docspaceAccountService.claimAllWithTokenIssuedBefore(
+                issuedBefore,
+                false,
+                10,
+                CLAIM_TIMEOUT
+        );
+        assertEquals(List.of(testUserSalesAdmin.getId()), getIds(docspaceAccounts));
+    }
+
+    @Test
+    public void whenTokenIssuedRecently_thenAccountIsNotClaimed() {
+        List<DocspaceAccount> docspaceAccounts = docspaceAccountService.claimAllWithTokenIssuedBefore(
+                Instant.now().minus(Duration.ofHours(1)),
+                false,
+                10,
+                CLAIM_TIMEOUT
+        );
+
+        assertTrue(docspaceAccounts.isEmpty());
+    }
+
+    private List<Long> getIds(final List<DocspaceAccount> docspaceAccounts) {
+        return docspaceAccounts.stream()
+                .map(DocspaceAccount::getUserId)
+                .toList();
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.service;
+
+import com.onlyoffice.docspacepipedrive.AbstractControllerTest;
+import com.onlyoffice.docspacepipedrive.entity.SharedGroupMemberChange;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestPropertySource(properties = "app.shared-group-members.flush-interval=3600000")
+public class SharedGroupMemberChangeServiceTest extends AbstractControllerTest {
+    private static final Duration CLAIM_TIMEOUT = Duration.ofMinutes(1);
+
+    @Autowired
+    private SharedGroupMemberChangeService sharedGroupMemberChangeService;
+
+    @Test
+    public void whenChangesClaimed_thenOtherFlushSkipsThem() {
+        sharedGroupMemberChangeService.save(testClient.getId(), UUID.randomUUID(), SharedGroupMemberChange.Action.ADD);
+
+        List<SharedGroupMemberChange> claimedChanges = sharedGroupMemberChangeService.claimAllByClientId(
+                testClient.getId(),
+                10,
+                CLAIM_TIMEOUT
+        );
+        assertEquals(1, claimedChanges.size());
+
+        assertTrue(sharedGroupMemberChangeService.claimAllByClientId(testClient.getId(), 10, CLAIM_TIMEOUT).isEmpty());
+    }
+
+    @Test
+    public void whenClaimExpired_thenChangesAreClaimedAgain() {
+        sharedGroupMemberChangeService.save(testClient.getId(), UUID.randomUUID(), SharedGroupMemberChange.Action.ADD);
+
+        sharedGroupMemberChangeService.claimAllByClientId(testClient.getId(), 10, Duration.ZERO);
+
+        List<SharedGroupMemberChange> claimedChanges = sharedGroupMemberChangeService.claimAllByClientId(
+                testClient.getId(),
+                10,
+                CLAIM_TIMEOUT
+        );
+        assertEquals(1, claimedChanges.size());
+    }
+
+    @Test
+    public void whenChangedWhileSent_thenChangeIsReleasedForNextFlush() {
+        UUID memberId = UUID.randomUUID();
+        sharedGroupMemberChangeService.save(testClient.getId(), memberId, SharedGroupMemberChange.Action.ADD);
+
+        List<SharedGroupMemberChange> claimedChanges = sharedGroupMemberChangeService.claimAllByClientId(
+                testClient.getId(),
+                10,
+                CLAIM_TIMEOUT
+        );
+
+        sharedGroupMemberChangeService.save(testClient.getId(), memberId, SharedGroupMemberChange.Action.REMOVE);
+        sharedGroupMemberChangeService.deleteAll(claimedChanges);
+
+        claimedChanges = sharedGroupMemberChangeService.claimAllByClientId(testClient.getId(), 10, CLAIM_TIMEOUT);
+        assertEquals(1, claimedChanges.size());
+        assertEquals(SharedGroupMemberChange.Action.REMOVE, claimedChanges.get(0).getAction());
+    }
+}
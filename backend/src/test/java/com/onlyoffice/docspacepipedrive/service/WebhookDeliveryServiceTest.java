@@ -0,0 +1,92 @@
+/**
+ *
+ * (c) Copyright Ascensio System SIA 2024
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.onlyoffice.docspacepipedrive.service;
+
+import com.onlyoffice.docspacepipedrive.AbstractControllerTest;
+import com.onlyoffice.docspacepipedrive.entity.WebhookDelivery;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@TestPropertySource(properties = "app.webhook-deliveries.poll-interval=3600000")
+public class WebhookDeliveryServiceTest extends AbstractControllerTest {
+    private static final String COALESCING_KEY = "10000:1";
+    private static final Duration VISIBILITY_TIMEOUT = Duration.ofMinutes(5);
+
+    @Autowired
+    private WebhookDeliveryService webhookDeliveryService;
+
+    @Test
+    public void whenFailedDeliveryAndNewerDeliveryArrives_thenNewerWaitsForRetry() {
+        WebhookDelivery failedDelivery = createAvailableDelivery();
+
+        List<WebhookDelivery> claimedDeliveries = webhookDeliveryService.claimAvailable(10, VISIBILITY_TIMEOUT);
+        assertEquals(List.of(failedDelivery.getId()), getIds(claimedDeliveries));
+
+        webhookDeliveryService.reschedule(failedDelivery.getId(), Instant.now().plus(Duration.ofHours(1)), "error");
+
+        WebhookDelivery newerDelivery = createAvailableDelivery();
+
+        assertTrue(webhookDeliveryService.claimAvailable(10, VISIBILITY_TIMEOUT).isEmpty());
+
+        webhookDeliveryService.reschedule(failedDelivery.getId(), Instant.now().minusSeconds(1), "error");
+
+        claimedDeliveries = webhookDeliveryService.claimAvailable(10, VISIBILITY_TIMEOUT);
+        assertEquals(List.of(failedDelivery.getId(), newerDelivery.getId()), getIds(claimedDeliveries));
+    }
+
+    @Test
+    public void whenOlderDeliveryParked_thenNewerIsClaimed() {
+        WebhookDelivery parkedDelivery = createAvailableDelivery();
+        webhookDeliveryService.claimAvailable(10, VISIBILITY_TIMEOUT);
+        webhookDeliveryService.reschedule(parkedDelivery.getId(), null, "error");
+
+        WebhookDelivery newerDelivery = createAvailableDelivery();
+
+        List<WebhookDelivery> claimedDeliveries = webhookDeliveryService.claimAvailable(10, VISIBILITY_TIMEOUT);
+        assertEquals(List.of(newerDelivery.getId()), getIds(claimedDeliveries));
+    }
+
+    private WebhookDelivery createAvailableDelivery() {
+        WebhookDelivery webhookDelivery = webhookDeliveryService.create(
+                testUserSalesAdmin,
+                "deal",
+                COALESCING_KEY,
+                "{}"
+        );
+
+        // Skip the coalescing window
+        webhookDeliveryService.reschedule(webhookDelivery.getId(), Instant.now().minusSeconds(1), null);
+
+        return webhookDelivery;
+    }
+
+    private List<Long> getIds(final List<WebhookDelivery> webhookDeliveries) {
+        return webhookDeliveries.stream()
+                .map(WebhookDelivery::getId)
+                .toList();
+    }
+}
@@ -18,6 +18,8 @@
 
 package com.onlyoffice.docspacepipedrive.web.controller;
 
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.matching.RequestPatternBuilder;
 import com.onlyoffice.docspacepipedrive.AbstractControllerTest;
 import com.onlyoffice.docspacepipedrive.entity.Room;
 import com.onlyoffice.docspacepipedrive.exceptions.DocspaceUrlNotFoundException;
@@ -28,15 +30,25 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
+import java.util.Set;
 
+import static com.github.tomakehurst.wiremock.client.WireMock.matchingJsonPath;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.putRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class RoomControllerTest extends AbstractControllerTest {
+    private static final Duration DEAL_LINK_TIMEOUT = Duration.ofSeconds(10);
 
     private static Room testRoom;
 
@@ -118,6 +130,54 @@ public class RoomControllerTest extends AbstractControllerTest {
         assertEquals(room.getRoomId(), 10001);
     }
 
+    // The room is linked to the deal (followers invited, tag added) after the response, on the deal event lane
+    @Test
+    public void whenPostRoom_thenRoomIsLinkedToDealAsynchronously() throws Exception {
+        WIREMOCK_PIPEDRIVE_SERVER.stubFor(WireMock.get(urlEqualTo("/v1/deals/4"))
+                .atPriority(1)
+                .willReturn(okJson("{\"success\":true,\"data\":{\"id\":4,\"title\":\"Deal 4\","
+                        + "\"visible_to\":1,\"followers_count\":1}}"))
+        );
+        WIREMOCK_PIPEDRIVE_SERVER.stubFor(WireMock.get(urlPathEqualTo("/v1/deals/4/followers"))
+                .willReturn(okJson("{\"success\":true,\"data\":[{\"user_id\":10000}],"
+                        + "\"additional_data\":{\"pagination\":{\"more_items_in_collection\":false}}}"))
+        );
+        WIREMOCK_DOCSPACE_SERVER.stubFor(WireMock.get(urlPathEqualTo("/api/2.0/people/simple/filter"))
+                .willReturn(okJson("{\"response\":[],\"total\":0}"))
+        );
+        WIREMOCK_DOCSPACE_SERVER.stubFor(WireMock.put(urlEqualTo("/api/2.0/files/rooms/10001/share"))
+                .willReturn(okJson("{\"response\":{\"members\":[]}}"))
+        );
+        WIREMOCK_DOCSPACE_SERVER.stubFor(WireMock.get(urlEqualTo("/api/2.0/files/tags"))
+                .willReturn(okJson("{\"response\":[]}"))
+        );
+        WIREMOCK_DOCSPACE_SERVER.stubFor(WireMock.post(urlEqualTo("/api/2.0/files/tags"))
+                .willReturn(okJson("{\"response\":\"Pipedrive\"}"))
+        );
+        WIREMOCK_DOCSPACE_SERVER.stubFor(WireMock.put(urlEqualTo("/api/2.0/files/rooms/10001/tags"))
+                .willReturn(okJson("{\"response\":{\"id\":10001}}"))
+        );
+
+        mockMvc.perform(post("/api/v1/room/4")
+                        .header("Authorization",
+                                getAuthorizationHeaderForUser(testUserSalesAdmin)
+                        )
+                )
+                .andExpect(status().isOk());
+
+        awaitRequest(putRequestedFor(urlEqualTo("/api/2.0/files/rooms/10001/tags")));
+
+        WIREMOCK_DOCSPACE_SERVER.verify(putRequestedFor(urlEqualTo("/api/2.0/files/rooms/10001/share"))
+                .withRequestBody(matchingJsonPath(
+                        "$.invitations[0].id",
+                        WireMock.equalTo("aaaaaaaa-aaaa-aaaa-aaaa-aaaaaaaaaaa1")
+                ))
+        );
+
+        Room room = roomService.findByClientIdAndDealId(testUserSalesAdmin.getClient().getId(), 4L);
+        assertEquals(Set.of(10000L), room.getFollowers());
+    }
+
     @Test
     public void whenPostRoomWithEmptySettings_thenReturnForbidden() throws Exception {
         settingsService.clear(testUserSalesAdmin.getClient().getId());
@@ -163,4 +223,14 @@ public class RoomControllerTest extends AbstractControllerTest {
                 )
         );
     }
+
+    private void awaitRequest(final RequestPatternBuilder requestPattern) throws InterruptedException {
+        Instant deadline = Instant.now().plus(DEAL_LINK_TIMEOUT);
+
+        while (WIREMOCK_DOCSPACE_SERVER.findAll(requestPattern).isEmpty()) {
+            assertTrue(Instant.now().isBefore(deadline), "Room was not linked to the deal in time");
+
+            Thread.sleep(50);
+        }
+    }
 }